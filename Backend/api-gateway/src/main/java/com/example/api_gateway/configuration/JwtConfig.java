@@ -1,9 +1,6 @@
 package com.example.api_gateway.configuration;
 
-import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.io.Decoders;
-import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
@@ -14,10 +11,9 @@ import com.nimbusds.jose.crypto.MACVerifier;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
 
-import javax.crypto.SecretKey;
 import java.text.ParseException;
+import java.time.Instant;
 import java.util.Date;
-import java.util.function.Function;
 
 @Component
 @Slf4j
@@ -26,67 +22,47 @@ public class JwtConfig {
     @Value("${jwt.signerKey}")
     private String signerKey;
 
-    public String extractUserId(String token) {
-        try {
-            SignedJWT signedJWT = SignedJWT.parse(token);
-            JWTClaimsSet claimsSet = signedJWT.getJWTClaimsSet();
-            return claimsSet.getStringClaim("userId");
-        } catch (ParseException e) {
-            log.error("Error parsing JWT token for userId", e);
-            return null;
-        }
-    }
-
-    public Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
-    }
-
-    public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
-    }
-
-    private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSignKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-    }
+    // MACVerifier không giữ trạng thái giữa các lần verify nên dùng chung một instance
+    private JWSVerifier verifier;
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    @PostConstruct
+    void initVerifier() throws JOSEException {
+        verifier = new MACVerifier(signerKey.getBytes());
     }
 
-    
-    public boolean isTokenValid(String token) {
+    /**
+     * Parses the token once, checks signature, expiry and that it is not a refresh token, and returns the
+     * claims the gateway uses, or {@code null} when the token is not acceptable.
+     */
+    public VerifiedToken verify(String token) {
         try {
             SignedJWT signedJWT = SignedJWT.parse(token);
-            
-            // Verify signature
-            JWSVerifier verifier = new MACVerifier(signerKey.getBytes());
             if (!signedJWT.verify(verifier)) {
-                log.error("Token signature verification failed");
-                return false;
+                log.warn("Token signature verification failed");
+                return null;
             }
-            
-            // Check expiration
+
             JWTClaimsSet claimsSet = signedJWT.getJWTClaimsSet();
-            if (claimsSet.getExpirationTime().before(new Date())) {
-                log.error("Token expired");
-                return false;
+            Date expirationTime = claimsSet.getExpirationTime();
+            if (expirationTime == null || expirationTime.before(new Date())) {
+                log.debug("Token expired");
+                return null;
             }
-            
-            return true;
-            
+            // refresh token chỉ dùng cho /auth/refresh, không được dùng làm access token
+            if ("refresh".equals(claimsSet.getClaim("type"))) {
+                log.debug("Refresh token used as access token");
+                return null;
+            }
+
+            return new VerifiedToken(claimsSet.getStringClaim("userId"), claimsSet.getJWTID(),
+                    Instant.ofEpochMilli(expirationTime.getTime()));
         } catch (ParseException | JOSEException e) {
-            log.error("Error validating JWT token", e);
-            return false;
+            log.warn("Error validating JWT token: {}", e.getMessage());
+            return null;
         }
     }
 
-    private SecretKey getSignKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(signerKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+    public boolean isTokenValid(String token) {
+        return verify(token) != null;
     }
 }
@@ -0,0 +1,120 @@
+package com.example.api_gateway.configuration;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.connection.ReactiveSubscription.Message;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.ReactiveRedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Local copy of the token ids revoked by identity-service (logout, refresh).
+ * <p>
+ * identity-service keeps revoked jtis in the Redis sorted set {@code token:revoked} (score = token expiry in
+ * epoch millis) and publishes {@code <jti>:<expiryMillis>} on the {@code token:revoked} channel. The gateway
+ * subscribes to the channel, then loads the live part of the set while already receiving; after a lost
+ * subscription it does the same again, so no revocation is missed. Entries are dropped once the token has expired, since
+ * the gateway rejects expired tokens anyway.
+ */
+@Component
+@Slf4j
+public class RevokedTokenRegistry {
+
+    static final String REVOKED_KEY = "token:revoked";
+    static final String REVOKED_CHANNEL = "token:revoked";
+
+    private final ReactiveRedisConnectionFactory connectionFactory;
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private Disposable subscription;
+
+    public RevokedTokenRegistry(ReactiveRedisConnectionFactory connectionFactory,
+                                ReactiveStringRedisTemplate redisTemplate,
+                                MeterRegistry meterRegistry) {
+        this.connectionFactory = connectionFactory;
+        this.redisTemplate = redisTemplate;
+        Gauge.builder("gateway.jwt.revoked.size", revoked, Map::size)
+                .description("Revoked token ids known to the gateway")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        // the container connects when created, so it is (re)created inside the retried flux
+        subscription = Flux.using(
+                        () -> new ReactiveRedisMessageListenerContainer(connectionFactory),
+                        // subscribe first and load the set once the subscription is confirmed, so a revocation
+                        // published while the set is read still arrives on the channel
+                        container -> container.receiveLater(ChannelTopic.of(REVOKED_CHANNEL))
+                                .flatMapMany(messages -> messages.map(Message::getMessage)
+                                        .mergeWith(loadRevoked().then(Mono.empty()))),
+                        container -> container.destroyLater().subscribe())
+                .subscribeOn(Schedulers.boundedElastic())
+                .doOnNext(this::add)
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                        .maxBackoff(Duration.ofSeconds(30))
+                        .doBeforeRetry(signal -> log.warn("Revocation feed lost, reconnecting: {}",
+                                signal.failure().getMessage())))
+                .subscribe();
+    }
+
+    @PreDestroy
+    void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    public boolean isRevoked(String jwtId) {
+        if (jwtId == null) {
+            return false;
+        }
+        Long expiry = revoked.get(jwtId);
+        return expiry != null && expiry > System.currentTimeMillis();
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.prune-interval:60000}")
+    public void pruneExpired() {
+        long now = System.currentTimeMillis();
+        revoked.values().removeIf(expiry -> expiry <= now);
+    }
+
+    private Flux<Void> loadRevoked() {
+        long now = System.currentTimeMillis();
+        return redisTemplate.opsForZSet()
+                .rangeByScoreWithScores(REVOKED_KEY, Range.closed((double) now, Double.POSITIVE_INFINITY))
+                .doOnNext(entry -> revoked.put(entry.getValue(), entry.getScore().longValue()))
+                .doOnComplete(() -> log.info("Loaded {} revoked token ids", revoked.size()))
+                .thenMany(Flux.empty());
+    }
+
+    // <jti>:<expiryMillis>
+    private void add(String message) {
+        int separator = message.lastIndexOf(':');
+        if (separator <= 0) {
+            log.warn("Ignoring malformed revocation message {}", message);
+            return;
+        }
+        try {
+            revoked.put(message.substring(0, separator), Long.parseLong(message.substring(separator + 1)));
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed revocation message {}", message);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.api_gateway.configuration;
+
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * Claims the gateway needs from a token whose signature and expiry have been checked.
+ */
+@Value
+public class VerifiedToken {
+    String userId;
+    String jwtId;
+    Instant expiresAt;
+
+    public boolean isExpired(Instant now) {
+        return !expiresAt.isAfter(now);
+    }
+}
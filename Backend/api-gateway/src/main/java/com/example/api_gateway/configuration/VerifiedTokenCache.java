@@ -0,0 +1,83 @@
+package com.example.api_gateway.configuration;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Tokens that already passed {@link JwtConfig#verify(String)}, keyed by the SHA-256 of the token so the raw
+ * token is not kept in memory. Each entry expires at the token's {@code exp}; once the cache is full, Caffeine
+ * evicts the least useful entries in the background, so a miss never scans the cache.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private final Cache<String, VerifiedToken> tokens;
+    private final Counter hits;
+    private final Counter misses;
+
+    public VerifiedTokenCache(@Value("${jwt.cache.max-entries:100000}") int maxEntries, MeterRegistry meterRegistry) {
+        this.tokens = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfter(new UntilTokenExpiry())
+                .build();
+        this.hits = Counter.builder("gateway.jwt.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("gateway.jwt.cache.requests").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("gateway.jwt.cache.size", tokens, Cache::estimatedSize)
+                .description("Verified tokens held by the gateway")
+                .register(meterRegistry);
+    }
+
+    public VerifiedToken get(String key) {
+        VerifiedToken token = tokens.getIfPresent(key);
+        if (token == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return token;
+    }
+
+    public void put(String key, VerifiedToken token) {
+        tokens.put(key, token);
+    }
+
+    public static String keyOf(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // Mỗi token nằm trong cache đến đúng thời điểm hết hạn của nó
+    private static class UntilTokenExpiry implements Expiry<String, VerifiedToken> {
+        @Override
+        public long expireAfterCreate(String key, VerifiedToken token, long currentTime) {
+            return Math.max(0, Duration.between(Instant.now(), token.getExpiresAt()).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedToken token, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, token, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, VerifiedToken token, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package com.example.api_gateway.filter;
 
 import com.example.api_gateway.configuration.JwtConfig;
+import com.example.api_gateway.configuration.RevokedTokenRegistry;
+import com.example.api_gateway.configuration.VerifiedToken;
+import com.example.api_gateway.configuration.VerifiedTokenCache;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
@@ -15,65 +18,61 @@ import reactor.core.publisher.Mono;
 public class JwtAuthenticationFilter extends AbstractGatewayFilterFactory<JwtAuthenticationFilter.Config> {
 
     private final JwtConfig jwtConfig;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final RevokedTokenRegistry revokedTokenRegistry;
 
-    public JwtAuthenticationFilter(JwtConfig jwtConfig) {
+    public JwtAuthenticationFilter(JwtConfig jwtConfig, VerifiedTokenCache verifiedTokenCache,
+                                   RevokedTokenRegistry revokedTokenRegistry) {
         super(Config.class);
         this.jwtConfig = jwtConfig;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.revokedTokenRegistry = revokedTokenRegistry;
     }
-@Override
-public GatewayFilter apply(Config config) {
-    return (exchange, chain) -> {
-        String authHeader = exchange.getRequest()
-                .getHeaders()
-                .getFirst(HttpHeaders.AUTHORIZATION);
 
-        log.info("=== JWT AUTHENTICATION FILTER ===");
-        log.info("Authorization header: {}", authHeader);
+    @Override
+    public GatewayFilter apply(Config config) {
+        return (exchange, chain) -> {
+            String authHeader = exchange.getRequest()
+                    .getHeaders()
+                    .getFirst(HttpHeaders.AUTHORIZATION);
 
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-            log.warn("Missing or invalid Authorization header");
-            return onError(exchange, "Missing or invalid Authorization header", HttpStatus.UNAUTHORIZED);
-        }
+            if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+                log.debug("Missing or invalid Authorization header");
+                return onError(exchange, "Missing or invalid Authorization header", HttpStatus.UNAUTHORIZED);
+            }
+
+            String token = authHeader.substring(7);
+
+            // Token đã verify trước đó (chưa hết hạn) thì không parse/verify lại
+            String cacheKey = VerifiedTokenCache.keyOf(token);
+            VerifiedToken verified = verifiedTokenCache.get(cacheKey);
+            if (verified == null) {
+                verified = jwtConfig.verify(token);
+                if (verified == null) {
+                    log.debug("Invalid JWT token");
+                    return onError(exchange, "Invalid JWT token", HttpStatus.UNAUTHORIZED);
+                }
+                verifiedTokenCache.put(cacheKey, verified);
+            }
 
-        String token = authHeader.substring(7);
-        log.info("Extracted token length: {}", token.length());
-        log.info("Token preview: {}...", token.length() > 20 ? token.substring(0, 20) : token);
-        
-        // Kiểm tra token có 3 phần không
-        String[] tokenParts = token.split("\\.");
-        log.info("Token parts count: {}", tokenParts.length);
-        
-        if (tokenParts.length != 3) {
-            log.error("❌ Invalid JWT format - Expected 3 parts, got {}", tokenParts.length);
-            return onError(exchange, "Invalid JWT format", HttpStatus.UNAUTHORIZED);
-        }
-        
-        try {
-            if (!jwtConfig.isTokenValid(token)) {
-                log.warn("Invalid JWT token");
-                return onError(exchange, "Invalid JWT token", HttpStatus.UNAUTHORIZED);
+            // Token đã logout/refresh bên identity-service
+            if (revokedTokenRegistry.isRevoked(verified.getJwtId())) {
+                log.debug("Revoked JWT token");
+                return onError(exchange, "Revoked JWT token", HttpStatus.UNAUTHORIZED);
             }
 
-            String userId = jwtConfig.extractUserId(token);
-            
-            log.info("JWT authentication successful for userId: {}", userId);
-            
+            String userId = verified.getUserId();
+            log.debug("JWT authentication successful for userId: {}", userId);
+
             // Chỉ thêm X-User-Id header
             ServerWebExchange modifiedExchange = exchange.mutate()
                     .request(exchange.getRequest().mutate()
                             .header("X-User-Id", userId != null ? userId : "")
                             .build())
                     .build();
-
-            log.info("✅ Added X-User-Id header: {}", userId);
             return chain.filter(modifiedExchange);
-            
-        } catch (Exception e) {
-            log.error("JWT authentication failed: {}", e.getMessage());
-            return onError(exchange, "JWT authentication failed", HttpStatus.UNAUTHORIZED);
-        }
-    };
-}
+        };
+    }
 
     private Mono<Void> onError(ServerWebExchange exchange, String err, HttpStatus httpStatus) {
         exchange.getResponse().setStatusCode(httpStatus);
@@ -0,0 +1,83 @@
+package com.example.cart_service.client;
+
+import com.example.cart_service.config.ResilienceConfig;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Calls to invoice-service. {@link #create} is not blocking so the outbox relay can deliver several
+ * invoices at once over the shared connection pool. Calls go through the {@code invoice-service} bulkhead,
+ * timeout and circuit breaker, see {@link ProductClient}.
+ */
+@Component
+public class InvoiceClient {
+
+    private final WebClient webClient;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+
+    @Value("${invoice.service.url:http://invoice-service/invoices/create}")
+    private String invoiceServiceUrl;
+
+    @Value("${invoice.service.timeout:5s}")
+    private Duration timeout;
+
+    public InvoiceClient(WebClient.Builder loadBalancedWebClientBuilder,
+                         CircuitBreakerRegistry circuitBreakerRegistry,
+                         BulkheadRegistry bulkheadRegistry) {
+        this.webClient = loadBalancedWebClientBuilder.build();
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(ResilienceConfig.INVOICE_SERVICE);
+        this.bulkhead = bulkheadRegistry.bulkhead(ResilienceConfig.INVOICE_SERVICE);
+    }
+
+    /**
+     * Posts an already serialized invoice request. Completes when invoice-service created the invoice
+     * (2xx with {@code status=true}) or reports that it already exists (409, a retry of a delivered row);
+     * errors otherwise, including a 2xx whose body does not say the invoice was created.
+     */
+    public Mono<Void> create(String payload, String idempotencyKey) {
+        return webClient.post()
+                .uri(invoiceServiceUrl)
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Idempotency-Key", idempotencyKey)
+                .bodyValue(payload)
+                .exchangeToMono(response -> {
+                    if (response.statusCode().value() == HttpStatus.CONFLICT.value()) {
+                        return response.releaseBody();
+                    }
+                    if (!response.statusCode().is2xxSuccessful()) {
+                        return response.createException().flatMap(Mono::error);
+                    }
+                    return response.bodyToMono(JsonNode.class)
+                            .defaultIfEmpty(NullNode.getInstance())
+                            .flatMap(body -> body.path("status").asBoolean(false)
+                                    ? Mono.<Void>empty()
+                                    : Mono.error(new IllegalStateException(
+                                            "invoice-service did not create invoice " + idempotencyKey + ": " + body)));
+                })
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .timeout(timeout)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .then();
+    }
+
+    // false khi circuit breaker đang mở: không nên gửi thêm lời gọi nào lúc này
+    public boolean isAvailable() {
+        return circuitBreaker.getState() != CircuitBreaker.State.OPEN
+                && circuitBreaker.getState() != CircuitBreaker.State.FORCED_OPEN;
+    }
+}
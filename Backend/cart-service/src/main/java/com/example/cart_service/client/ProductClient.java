@@ -0,0 +1,113 @@
+package com.example.cart_service.client;
+
+import com.example.cart_service.config.ResilienceConfig;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Calls to product-service. Failures surface as
+ * {@link org.springframework.web.reactive.function.client.WebClientResponseException} for non-2xx answers
+ * and as a timeout or connection error otherwise.
+ * <p>
+ * Every call goes through the {@code product-service} bulkhead, timeout and circuit breaker. When the
+ * breaker is open or the bulkhead is full the call is rejected straight away with
+ * {@link io.github.resilience4j.circuitbreaker.CallNotPermittedException} or
+ * {@link io.github.resilience4j.bulkhead.BulkheadFullException} instead of waiting on a slow service.
+ */
+@Component
+public class ProductClient {
+
+    private final WebClient webClient;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+
+    @Value("${product.service.timeout:3s}")
+    private Duration timeout;
+
+    public ProductClient(WebClient.Builder loadBalancedWebClientBuilder,
+                         CircuitBreakerRegistry circuitBreakerRegistry,
+                         BulkheadRegistry bulkheadRegistry,
+                         @Value("${product.service.url:http://product-service}") String productServiceUrl) {
+        this.webClient = loadBalancedWebClientBuilder.baseUrl(productServiceUrl).build();
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(ResilienceConfig.PRODUCT_SERVICE);
+        this.bulkhead = bulkheadRegistry.bulkhead(ResilienceConfig.PRODUCT_SERVICE);
+    }
+
+    /**
+     * Current stock of the given products, read with one {@code POST /products/batch}. Unknown products
+     * are left out of the result. Used on the checkout path, so any failure other than a 4xx answer is
+     * reported to the caller as 503 rather than left to block the request.
+     */
+    public Map<String, Integer> getStocks(Collection<String> productIds) {
+        Map<?, ?> response = guarded(webClient.post()
+                .uri("/products/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("ids", productIds))
+                .retrieve()
+                .bodyToMono(Map.class))
+                .onErrorMap(e -> !isClientError(e), e -> new ResponseStatusException(
+                        HttpStatus.SERVICE_UNAVAILABLE, "Product service is unavailable, please try again", e))
+                .block();
+
+        Map<String, Integer> stocks = new HashMap<>();
+        Map<?, ?> result = response == null ? null : (Map<?, ?>) response.get("result");
+        List<?> products = result == null ? null : (List<?>) result.get("products");
+        if (products != null) {
+            for (Object item : products) {
+                Map<?, ?> product = (Map<?, ?>) item;
+                Object stock = product.get("stock");
+                stocks.put(product.get("id").toString(), stock == null ? 0 : ((Number) stock).intValue());
+            }
+        }
+        return stocks;
+    }
+
+    // POST /inventory/bulk, body {"items": [...]} như trong hàng đợi stock:reconcile
+    // ref cho phép product-service bỏ qua lần gửi lại của cùng một biến động kho
+    public void applyInventory(String ref, Object items) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("ref", ref);
+        body.put("items", items);
+        guarded(webClient.post()
+                .uri("/inventory/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .retrieve()
+                .toBodilessEntity())
+                .block();
+    }
+
+    // false khi circuit breaker đang mở: không nên gửi thêm lời gọi nào lúc này
+    public boolean isAvailable() {
+        return circuitBreaker.getState() != CircuitBreaker.State.OPEN
+                && circuitBreaker.getState() != CircuitBreaker.State.FORCED_OPEN;
+    }
+
+    private <T> Mono<T> guarded(Mono<T> call) {
+        return call.transformDeferred(BulkheadOperator.of(bulkhead))
+                .timeout(timeout)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+    }
+
+    private static boolean isClientError(Throwable e) {
+        return e instanceof WebClientResponseException response && response.getStatusCode().is4xxClientError();
+    }
+}
@@ -3,10 +3,13 @@ package com.example.cart_service.config;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 @Configuration
@@ -44,4 +47,46 @@ public class RedisConfig {
 
         return template;
     }
-}
\ No newline at end of file
+
+    @Bean
+    public RedisScript<String> stockReserveScript() {
+        return script("scripts/stock_reserve.lua", String.class);
+    }
+
+    @Bean
+    public RedisScript<Long> stockCommitScript() {
+        return script("scripts/stock_commit.lua", Long.class);
+    }
+
+    @Bean
+    public RedisScript<Long> stockReleaseScript() {
+        return script("scripts/stock_release.lua", Long.class);
+    }
+
+    @Bean
+    public RedisScript<Long> stockRestockScript() {
+        return script("scripts/stock_restock.lua", Long.class);
+    }
+
+    @Bean
+    public RedisScript<Long> stockResyncScript() {
+        return script("scripts/stock_resync.lua", Long.class);
+    }
+
+    @Bean
+    public RedisScript<Long> stockLockRenewScript() {
+        return script("scripts/stock_lock_renew.lua", Long.class);
+    }
+
+    @Bean
+    public RedisScript<Long> stockLockReleaseScript() {
+        return script("scripts/stock_lock_release.lua", Long.class);
+    }
+
+    private static <T> RedisScript<T> script(String path, Class<T> resultType) {
+        DefaultRedisScript<T> script = new DefaultRedisScript<>();
+        script.setLocation(new ClassPathResource(path));
+        script.setResultType(resultType);
+        return script;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.cart_service.config;
+
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.common.circuitbreaker.configuration.CircuitBreakerConfigCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+/**
+ * Circuit breaker and bulkhead instances, one per downstream service. Sizes and thresholds are in
+ * {@code application.properties} under {@code resilience4j.*}; this only decides what counts as a failure.
+ */
+@Configuration
+public class ResilienceConfig {
+
+    public static final String PRODUCT_SERVICE = "product-service";
+    public static final String INVOICE_SERVICE = "invoice-service";
+
+    @Bean
+    public CircuitBreakerConfigCustomizer productServiceCircuitBreaker() {
+        return CircuitBreakerConfigCustomizer.of(PRODUCT_SERVICE,
+                builder -> builder.recordException(ResilienceConfig::isRemoteFailure));
+    }
+
+    @Bean
+    public CircuitBreakerConfigCustomizer invoiceServiceCircuitBreaker() {
+        return CircuitBreakerConfigCustomizer.of(INVOICE_SERVICE,
+                builder -> builder.recordException(ResilienceConfig::isRemoteFailure));
+    }
+
+    // 4xx là do yêu cầu sai chứ không phải service đang hỏng; bulkhead đầy là giới hạn phía mình
+    static boolean isRemoteFailure(Throwable e) {
+        if (e instanceof WebClientResponseException response) {
+            return !response.getStatusCode().is4xxClientError();
+        }
+        return !(e instanceof BulkheadFullException);
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.cart_service.config;
+
+import io.micrometer.observation.ObservationRegistry;
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.loadbalancer.LoadBalanced;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+/**
+ * HTTP client used for calls to other services.
+ * <p>
+ * All clients share one Reactor Netty connection pool, so keep-alive connections to product-service and
+ * invoice-service are reused instead of opened per request. Host names such as {@code http://product-service}
+ * are resolved through Eureka by the {@link LoadBalanced} builder. Every call is timed as
+ * {@code http.client.requests}, tagged with the target service ({@code client.name}), uri and outcome.
+ */
+@Configuration
+public class WebClientConfig {
+
+    @Value("${http.client.max-connections:200}")
+    private int maxConnections;
+
+    @Value("${http.client.pending-acquire-timeout:5s}")
+    private Duration pendingAcquireTimeout;
+
+    @Value("${http.client.max-idle-time:30s}")
+    private Duration maxIdleTime;
+
+    @Value("${http.client.connect-timeout:2s}")
+    private Duration connectTimeout;
+
+    @Value("${http.client.response-timeout:10s}")
+    private Duration responseTimeout;
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider httpConnectionProvider() {
+        return ConnectionProvider.builder("cart-service-http")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .evictInBackground(maxIdleTime)
+                .build();
+    }
+
+    @Bean
+    @LoadBalanced
+    public WebClient.Builder loadBalancedWebClientBuilder(ConnectionProvider httpConnectionProvider,
+                                                          ObservationRegistry observationRegistry) {
+        // responseTimeout là giới hạn chung, từng client đặt timeout riêng ngắn hơn cho mỗi lời gọi
+        HttpClient httpClient = HttpClient.create(httpConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .responseTimeout(responseTimeout);
+        return WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .observationRegistry(observationRegistry);
+    }
+}
@@ -1,16 +1,19 @@
 package com.example.cart_service.controller;
 
 import com.example.cart_service.dto.request.OrderRequest;
+import com.example.cart_service.dto.request.OrderSearchRequest;
 import com.example.cart_service.dto.response.ResultDTO;
 import com.example.cart_service.dto.response.OrderResponse;
 import com.example.cart_service.service.OrderService;
 import org.junit.platform.commons.logging.Logger;
 import org.junit.platform.commons.logging.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.Instant;
 
 
 @RestController
@@ -46,9 +49,24 @@ public class OrderController {
     }
 
     @GetMapping
-    public ResponseEntity<ResultDTO> getAllOrders(){
-        LOG.debug(() -> "REST request to get all Orders");
-        ResultDTO resultDTO = orderService.findAll();
+    public ResponseEntity<ResultDTO> getAllOrders(
+            @RequestParam(name = "cursor", required = false) Integer cursor,
+            @RequestParam(name = "limit", required = false, defaultValue = "50") int limit,
+            @RequestParam(name = "status", required = false) String status,
+            @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(name = "customer", required = false) String customer,
+            @RequestParam(name = "include", required = false) String include) {
+        OrderSearchRequest searchRequest = new OrderSearchRequest();
+        searchRequest.setCursor(cursor);
+        searchRequest.setLimit(limit);
+        searchRequest.setStatus(status);
+        searchRequest.setFromDate(from);
+        searchRequest.setToDate(to);
+        searchRequest.setCustomer(customer);
+        searchRequest.setIncludeItems("items".equalsIgnoreCase(include));
+        LOG.debug(() -> "REST request to get Orders : " + searchRequest);
+        ResultDTO resultDTO = orderService.findAll(searchRequest);
         return ResponseEntity.ok(resultDTO);
     }
 
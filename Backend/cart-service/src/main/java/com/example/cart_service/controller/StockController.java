@@ -0,0 +1,26 @@
+package com.example.cart_service.controller;
+
+import com.example.cart_service.dto.response.ResultDTO;
+import com.example.cart_service.service.redis.StockReconciler;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/stock")
+public class StockController {
+
+    private final StockReconciler stockReconciler;
+
+    public StockController(StockReconciler stockReconciler) {
+        this.stockReconciler = stockReconciler;
+    }
+
+    // Đưa các biến động kho bị product-service từ chối quay lại hàng đợi, sau khi đã xử lý nguyên nhân
+    @PostMapping("/reconcile/dead/replay")
+    public ResponseEntity<ResultDTO> replayDeadLetters() {
+        long replayed = stockReconciler.replayDeadLetters();
+        return ResponseEntity.ok(new ResultDTO("success", "đã đưa lại " + replayed + " biến động kho vào hàng đợi", true, replayed));
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.cart_service.dto.request;
+
+import java.time.Instant;
+
+public class OrderSearchRequest {
+
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 200;
+
+    // id của đơn cuối cùng ở trang trước, null cho trang đầu
+    private Integer cursor;
+
+    private int limit = DEFAULT_LIMIT;
+
+    private String status;
+
+    private Instant fromDate;
+
+    private Instant toDate;
+
+    // lọc theo tiền tố tên khách hàng
+    private String customer;
+
+    private boolean includeItems;
+
+    public Integer getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(Integer cursor) {
+        this.cursor = cursor;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        this.limit = Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Instant getFromDate() {
+        return fromDate;
+    }
+
+    public void setFromDate(Instant fromDate) {
+        this.fromDate = fromDate;
+    }
+
+    public Instant getToDate() {
+        return toDate;
+    }
+
+    public void setToDate(Instant toDate) {
+        this.toDate = toDate;
+    }
+
+    public String getCustomer() {
+        return customer;
+    }
+
+    public void setCustomer(String customer) {
+        this.customer = customer;
+    }
+
+    public boolean isIncludeItems() {
+        return includeItems;
+    }
+
+    public void setIncludeItems(boolean includeItems) {
+        this.includeItems = includeItems;
+    }
+
+    @Override
+    public String toString() {
+        return "OrderSearchRequest{" +
+                "cursor=" + cursor +
+                ", limit=" + limit +
+                ", status='" + status + '\'' +
+                ", fromDate=" + fromDate +
+                ", toDate=" + toDate +
+                ", customer='" + customer + '\'' +
+                ", includeItems=" + includeItems +
+                '}';
+    }
+}
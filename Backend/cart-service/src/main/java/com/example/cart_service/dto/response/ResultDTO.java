@@ -2,6 +2,7 @@ package com.example.cart_service.dto.response;
 
 import java.util.List;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
@@ -12,6 +13,7 @@ public class ResultDTO {
     private boolean status = false;
     private Object data;
     private Integer count;
+    private Integer nextCursor;
 
     public ResultDTO(Object message, String reason) {
         if (message instanceof String) {
@@ -85,6 +87,16 @@ public class ResultDTO {
         this.count = count;
     }
 
+    // Chỉ có với API phân trang dạng cursor, null khi đã hết dữ liệu
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Integer getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(Integer nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
     @Override
     public String toString() {
         ObjectMapper objectMapper = new ObjectMapper();
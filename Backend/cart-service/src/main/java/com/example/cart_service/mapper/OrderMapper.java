@@ -5,6 +5,7 @@ import com.example.cart_service.dto.response.OrderResponse;
 import com.example.cart_service.dto.request.OrderRequest;
 import com.example.cart_service.entity.Order;
 import com.example.cart_service.entity.OrderDetail;
+import com.example.cart_service.repository.projection.OrderSummaryView;
 import org.springframework.stereotype.Component;
 
 import java.time.ZoneId;
@@ -69,17 +70,43 @@ public class OrderMapper {
         dto.setReturnReason(order.getReturnReason());
         dto.setPaymentMethod(order.getPaymentMethod());
 
-        List<OrderItemResponse> items = order.getOrderDetails().stream().map(item -> {
-            OrderItemResponse itemDTO = new OrderItemResponse();
-            itemDTO.setProductId(item.getProductId());
-            itemDTO.setProductName(item.getProductName());
-            itemDTO.setPrice(item.getUnitPrice());
-            itemDTO.setQuantity(item.getQuantityProduct());
-            itemDTO.setSubtotal(item.getTotalPrice());
-            return itemDTO;
-        }).collect(Collectors.toList());
+        List<OrderItemResponse> items = order.getOrderDetails().stream()
+                .map(this::toItemDTO)
+                .collect(Collectors.toList());
 
         dto.setItems(items);
         return dto;
     }
+
+    // Dùng cho danh sách đơn hàng: items == null nghĩa là không tải chi tiết đơn
+    public OrderResponse toSummaryDTO(OrderSummaryView order, List<OrderDetail> details) {
+        OrderResponse dto = new OrderResponse();
+        dto.setOrderId(order.getId());
+        dto.setCode(order.getCode());
+        dto.setCustomerName(order.getCustomerName());
+        dto.setTotal(order.getFinalPrice() != null ? order.getFinalPrice() : 0.0);
+        dto.setStatus(order.getStatus());
+        if (order.getCreatedDate() != null) {
+            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+            dto.setCreatedAt(order.getCreatedDate().atZone(ZoneId.systemDefault()).format(formatter));
+        }
+        dto.setNotes(order.getNote());
+        dto.setReturnReason(order.getReturnReason());
+        dto.setPaymentMethod(order.getPaymentMethod());
+
+        if (details != null) {
+            dto.setItems(details.stream().map(this::toItemDTO).collect(Collectors.toList()));
+        }
+        return dto;
+    }
+
+    private OrderItemResponse toItemDTO(OrderDetail item) {
+        OrderItemResponse itemDTO = new OrderItemResponse();
+        itemDTO.setProductId(item.getProductId());
+        itemDTO.setProductName(item.getProductName());
+        itemDTO.setPrice(item.getUnitPrice());
+        itemDTO.setQuantity(item.getQuantityProduct());
+        itemDTO.setSubtotal(item.getTotalPrice());
+        return itemDTO;
+    }
 }
@@ -0,0 +1,25 @@
+package com.example.cart_service.repository;
+
+import com.example.cart_service.entity.InvoiceOutbox;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface InvoiceOutboxRepository extends JpaRepository<InvoiceOutbox, Long> {
+
+    boolean existsByIdempotencyKey(String idempotencyKey);
+
+    // lock.timeout = -2 -> SKIP LOCKED, so several cart-service instances can relay without blocking each other
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT o FROM InvoiceOutbox o WHERE o.status = 'PENDING' AND o.nextAttemptAt <= :now ORDER BY o.id")
+    List<InvoiceOutbox> findDueForUpdate(@Param("now") Instant now, Pageable pageable);
+}
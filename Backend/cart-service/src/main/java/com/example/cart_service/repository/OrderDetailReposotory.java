@@ -3,11 +3,17 @@ package com.example.cart_service.repository;
 import com.example.cart_service.entity.OrderDetail;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
 
 public interface OrderDetailReposotory extends JpaRepository<OrderDetail, Integer> {
 
     @Query ("SELECT COALESCE(SUM(od.quantityProduct), 0) FROM OrderDetail od")
     long getTotalQuantityProduct();
+
+    @Query("SELECT od FROM OrderDetail od WHERE od.order.id IN :orderIds ORDER BY od.id")
+    List<OrderDetail> findByOrderIds(@Param("orderIds") Collection<Integer> orderIds);
 }
@@ -1,6 +1,8 @@
 package com.example.cart_service.repository;
 
 import com.example.cart_service.entity.Order;
+import com.example.cart_service.repository.projection.OrderSummaryView;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -22,4 +24,21 @@ public interface OrderRepository extends JpaRepository<Order, Integer> {
 
     @Query("SELECT COUNT(o) FROM Order o WHERE o.status = 'RETURNED'")
     Long countReturnedOrders();
+
+    // Keyset pagination, newest first: the next page starts below the last id already returned
+    @Query("SELECT o.id AS id, o.code AS code, o.customerName AS customerName, o.finalPrice AS finalPrice, " +
+            "o.status AS status, o.createdDate AS createdDate, o.note AS note, o.returnReason AS returnReason, " +
+            "o.paymentMethod AS paymentMethod FROM Order o " +
+            "WHERE (:cursor IS NULL OR o.id < :cursor) " +
+            "AND (:status IS NULL OR o.status = :status) " +
+            "AND (:fromDate IS NULL OR o.createdDate >= :fromDate) " +
+            "AND (:toDate IS NULL OR o.createdDate < :toDate) " +
+            "AND (:customer IS NULL OR o.customerName LIKE CONCAT(:customer, '%')) " +
+            "ORDER BY o.id DESC")
+    List<OrderSummaryView> findSummaries(@Param("cursor") Integer cursor,
+                                         @Param("status") String status,
+                                         @Param("fromDate") Instant fromDate,
+                                         @Param("toDate") Instant toDate,
+                                         @Param("customer") String customer,
+                                         Pageable pageable);
 }
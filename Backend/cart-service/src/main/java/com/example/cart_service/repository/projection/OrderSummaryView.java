@@ -0,0 +1,27 @@
+package com.example.cart_service.repository.projection;
+
+import java.time.Instant;
+
+/**
+ * Order columns needed for list screens, read without touching {@code order_detail}.
+ */
+public interface OrderSummaryView {
+
+    Integer getId();
+
+    String getCode();
+
+    String getCustomerName();
+
+    Double getFinalPrice();
+
+    String getStatus();
+
+    Instant getCreatedDate();
+
+    String getNote();
+
+    String getReturnReason();
+
+    String getPaymentMethod();
+}
@@ -1,6 +1,7 @@
 package com.example.cart_service.service;
 
 import com.example.cart_service.dto.request.OrderRequest;
+import com.example.cart_service.dto.request.OrderSearchRequest;
 import com.example.cart_service.dto.response.ResultDTO;
 
 public interface OrderService {
@@ -12,6 +13,6 @@ public interface OrderService {
 
     ResultDTO findOne(Integer id);
 
-    ResultDTO findAll();
+    ResultDTO findAll(OrderSearchRequest searchRequest);
 
 }
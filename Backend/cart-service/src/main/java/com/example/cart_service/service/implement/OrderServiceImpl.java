@@ -1,71 +1,104 @@
 package com.example.cart_service.service.implement;
 
-import com.example.cart_service.dto.response.OrderItemResponse;
 import com.example.cart_service.dto.response.OrderResponse;
 import com.example.cart_service.dto.request.OrderRequest;
+import com.example.cart_service.dto.request.OrderSearchRequest;
 import com.example.cart_service.dto.response.ResultDTO;
-import com.example.cart_service.entity.OrderDetail;
 import com.example.cart_service.service.OrderService;
 import com.example.cart_service.entity.Order;
+import com.example.cart_service.entity.OrderDetail;
+import com.example.cart_service.repository.OrderDetailReposotory;
 import com.example.cart_service.repository.OrderRepository;
+import com.example.cart_service.repository.projection.OrderSummaryView;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import com.example.cart_service.mapper.OrderMapper;
+import com.example.cart_service.service.outbox.InvoiceOutboxService;
 import com.example.cart_service.service.redis.RedisService;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.MediaType;
+import com.example.cart_service.service.redis.StockReservationService;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class OrderServiceImpl implements OrderService {
 
+    private static final Set<String> STATUSES = Set.of("DRAFT", "COMPLETED", "CANCELLED", "RETURNED");
+
     private final OrderRepository orderRepository;
+    private final OrderDetailReposotory orderDetailReposotory;
     private final OrderMapper orderMapper;
     private final RedisService redisService;
-    private final RestTemplate restTemplate;
-
-    private static final String INVOICE_SERVICE_URL = "http://localhost:8089/invoices/create";
-    private static final String INVENTORY_SERVICE_URL = "http://localhost:8085/inventory/update";
-
-    public OrderServiceImpl(OrderRepository orderRepository, OrderMapper orderMapper, RedisService redisService, RestTemplate restTemplate) {
+    private final InvoiceOutboxService invoiceOutboxService;
+    private final StockReservationService stockReservationService;
+    private final MeterRegistry meterRegistry;
+
+    public OrderServiceImpl(OrderRepository orderRepository, OrderDetailReposotory orderDetailReposotory,
+                            OrderMapper orderMapper, RedisService redisService,
+                            InvoiceOutboxService invoiceOutboxService, StockReservationService stockReservationService,
+                            MeterRegistry meterRegistry) {
         this.redisService = redisService;
         this.orderRepository = orderRepository;
+        this.orderDetailReposotory = orderDetailReposotory;
         this.orderMapper = orderMapper;
-        this.restTemplate = restTemplate;
+        this.invoiceOutboxService = invoiceOutboxService;
+        this.stockReservationService = stockReservationService;
+        this.meterRegistry = meterRegistry;
     }
 
+    // Thời gian đo nằm trong transaction (chưa gồm commit); thời gian cả request xem ở http.server.requests
     @Override
     @Transactional
     public ResultDTO save(OrderRequest orderRequest) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            ResultDTO result = doSave(orderRequest);
+            outcome = "success";
+            return result;
+        } finally {
+            sample.stop(orderTimer("order.save", orderRequest.getStatus(), outcome));
+        }
+    }
+
+    @Override
+    public ResultDTO update(OrderRequest orderRequest) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            ResultDTO result = doUpdate(orderRequest);
+            outcome = "success";
+            return result;
+        } finally {
+            sample.stop(orderTimer("order.update", orderRequest.getStatus(), outcome));
+        }
+    }
+
+    private ResultDTO doSave(OrderRequest orderRequest) {
         Order order = orderMapper.toEntity(orderRequest);
         String code = redisService.genCode("DH");
         order.setCode(code);
         order = orderRepository.save(order);
 
+        // Giữ hàng trong Redis cho mọi đơn mới, đơn COMPLETED thì chốt luôn sau khi commit
+        stockReservationService.reserve(order.getId(), StockReservationService.quantitiesOfItems(orderRequest.getItems()));
+
         if ("COMPLETED".equals(orderRequest.getStatus())) {
-            if (orderRequest.getItems() != null && !orderRequest.getItems().isEmpty()) {
-                updateInventory(orderRequest.getItems());
-            }
-            sendInvoiceCreateRequest(order, "COMPLETED");
-        }
-        else if (orderRequest.getItems() != null && !orderRequest.getItems().isEmpty()) {
-            updateInventory(orderRequest.getItems());
+            stockReservationService.commitAfterTransaction(order.getId());
+            invoiceOutboxService.enqueue(order, "COMPLETED");
         }
 
         OrderResponse orderResponse = orderMapper.toDTO(order);
         return new ResultDTO("success", "lưu đơn hàng thành công", true, orderResponse, 1);
     }
 
-    @Override
-    public ResultDTO update(OrderRequest orderRequest) {
+    private ResultDTO doUpdate(OrderRequest orderRequest) {
         Order existingOrder = orderRepository.findById(orderRequest.getId())
                 .orElseThrow(() -> new RuntimeException("Order not found"));
 
@@ -75,25 +108,30 @@ public class OrderServiceImpl implements OrderService {
         existingOrder = orderMapper.updateEntity(orderRequest, existingOrder);
         existingOrder = orderRepository.save(existingOrder);
 
+        if ("DRAFT".equals(oldStatus) && "DRAFT".equals(newStatus)) {
+            // sửa đơn nháp: dời phần giữ hàng sang số lượng mới (chỉ lấy/trả phần chênh lệch)
+            stockReservationService.reserve(existingOrder.getId(),
+                    StockReservationService.quantitiesOfDetails(existingOrder.getOrderDetails()));
+        }
+
         if (!oldStatus.equals(newStatus)) {
 
             if ("COMPLETED".equals(newStatus)) {
-                sendInvoiceCreateRequest(existingOrder, "COMPLETED");
+                // hold may have expired since the draft was created: reserve again before committing
+                stockReservationService.reserve(existingOrder.getId(),
+                        StockReservationService.quantitiesOfDetails(existingOrder.getOrderDetails()));
+                stockReservationService.commitAfterTransaction(existingOrder.getId());
+                invoiceOutboxService.enqueue(existingOrder, "COMPLETED");
             }
 
             else if ("COMPLETED".equals(oldStatus) && ("CANCELLED".equals(newStatus) || "RETURNED".equals(newStatus))) {
-
-                if (existingOrder.getOrderDetails() != null && !existingOrder.getOrderDetails().isEmpty()) {
-                    returnInventory(existingOrder.getOrderDetails());
-                }
-
-                sendInvoiceCreateRequest(existingOrder, newStatus);
+                stockReservationService.restockAfterTransaction(existingOrder.getId(),
+                        StockReservationService.quantitiesOfDetails(existingOrder.getOrderDetails()));
+                invoiceOutboxService.enqueue(existingOrder, newStatus);
             }
 
             else if ("DRAFT".equals(oldStatus) && "CANCELLED".equals(newStatus)) {
-                if (existingOrder.getOrderDetails() != null && !existingOrder.getOrderDetails().isEmpty()) {
-                    returnInventory(existingOrder.getOrderDetails());
-                }
+                stockReservationService.releaseAfterTransaction(existingOrder.getId());
             }
         }
 
@@ -101,79 +139,6 @@ public class OrderServiceImpl implements OrderService {
         return new ResultDTO("success", "update đơn hàng thành công", true, orderResponse, 1);
     }
 
-    private void sendInvoiceCreateRequest(Order order, String invoiceType) {
-        try {
-            Map<String, Object> payload = new HashMap<>();
-            payload.put("orderId", order.getId());
-            payload.put("code", order.getCode());
-            payload.put("invoiceType", invoiceType); // COMPLETED, RETURNED, ...
-            payload.put("customerName", order.getCustomerName());
-            payload.put("totalAmount", order.getFinalPrice());
-            payload.put("paymentMethod", order.getPaymentMethod());
-
-            List<Map<String, Object>> detailList = new ArrayList<>();
-            if (order.getOrderDetails() != null) {
-                for (OrderDetail d : order.getOrderDetails()) {
-                    Map<String, Object> item = new HashMap<>();
-                    item.put("productId", d.getProductId());
-                    item.put("productName", d.getProductName());
-                    item.put("quantity", d.getQuantityProduct());
-                    item.put("unitPrice", d.getUnitPrice());
-                    detailList.add(item);
-                }
-            }
-            payload.put("items", detailList);
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(payload, headers);
-
-            restTemplate.postForEntity(INVOICE_SERVICE_URL, entity, ResultDTO.class);
-
-        } catch (Exception e) {
-            System.err.println("Lỗi khi gọi Invoice Service: " + e.getMessage());
-        }
-    }
-
-    private void updateInventory(List<OrderItemResponse> items) {
-        try {
-            List<Map<String, Object>> inventoryItems = new ArrayList<>();
-            for (OrderItemResponse item : items) {
-                Map<String, Object> inventoryItem = new HashMap<>();
-                inventoryItem.put("productId", item.getProductId());
-                inventoryItem.put("quantity", item.getQuantity());
-                inventoryItem.put("operation", -1); // Trừ kho
-                inventoryItems.add(inventoryItem);
-            }
-            callInventoryService(inventoryItems);
-        } catch (Exception e) {
-            System.err.println("Failed to update inventory: " + e.getMessage());
-        }
-    }
-
-    private void returnInventory(List<OrderDetail> orderDetails) {
-        try {
-            List<Map<String, Object>> inventoryItems = new ArrayList<>();
-            for (OrderDetail detail : orderDetails) {
-                Map<String, Object> inventoryItem = new HashMap<>();
-                inventoryItem.put("productId", detail.getProductId());
-                inventoryItem.put("quantity", detail.getQuantityProduct());
-                inventoryItem.put("operation", 1); // Cộng lại kho
-                inventoryItems.add(inventoryItem);
-            }
-            callInventoryService(inventoryItems);
-        } catch (Exception e) {
-            System.err.println("Failed to return inventory: " + e.getMessage());
-        }
-    }
-
-    private void callInventoryService(List<Map<String, Object>> inventoryItems) {
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        HttpEntity<List<Map<String, Object>>> entity = new HttpEntity<>(inventoryItems, headers);
-        restTemplate.exchange(INVENTORY_SERVICE_URL, HttpMethod.POST, entity, String.class);
-    }
-
     @Override
     @Transactional
     public ResultDTO delete(Integer id) {
@@ -183,6 +148,7 @@ public class OrderServiceImpl implements OrderService {
             throw new RuntimeException("Only DRAFT orders can be deleted");
         }
         orderRepository.delete(order);
+        stockReservationService.releaseAfterTransaction(order.getId());
         return new ResultDTO("success", "xoá đơn hàng thành công", true);
     }
 
@@ -197,11 +163,49 @@ public class OrderServiceImpl implements OrderService {
 
     @Override
     @Transactional(readOnly = true)
-    public ResultDTO findAll() {
-        List<Order> orders = orderRepository.findAll();
-        List<OrderResponse> orderResponses = orders.stream()
-                .map(orderMapper::toDTO)
-                .collect(Collectors.toList());
-        return new ResultDTO("success", "Lấy danh sách đơn hàng thành công", true, orderResponses);
+    public ResultDTO findAll(OrderSearchRequest searchRequest) {
+        int limit = searchRequest.getLimit();
+        String customer = searchRequest.getCustomer();
+        // lấy thừa 1 bản ghi để biết còn trang sau hay không
+        List<OrderSummaryView> summaries = orderRepository.findSummaries(
+                searchRequest.getCursor(),
+                searchRequest.getStatus(),
+                searchRequest.getFromDate(),
+                searchRequest.getToDate(),
+                customer == null || customer.isBlank() ? null : customer,
+                PageRequest.of(0, limit + 1));
+
+        boolean hasMore = summaries.size() > limit;
+        if (hasMore) {
+            summaries = summaries.subList(0, limit);
+        }
+
+        Map<Integer, List<OrderDetail>> detailsByOrder = Map.of();
+        if (searchRequest.isIncludeItems() && !summaries.isEmpty()) {
+            List<Integer> orderIds = summaries.stream().map(OrderSummaryView::getId).toList();
+            detailsByOrder = orderDetailReposotory.findByOrderIds(orderIds).stream()
+                    .collect(Collectors.groupingBy(detail -> detail.getOrder().getId()));
+        }
+
+        List<OrderResponse> orderResponses = new ArrayList<>(summaries.size());
+        for (OrderSummaryView summary : summaries) {
+            List<OrderDetail> details = searchRequest.isIncludeItems()
+                    ? detailsByOrder.getOrDefault(summary.getId(), List.of())
+                    : null;
+            orderResponses.add(orderMapper.toSummaryDTO(summary, details));
+        }
+
+        ResultDTO result = new ResultDTO("success", "Lấy danh sách đơn hàng thành công", true, orderResponses, orderResponses.size());
+        if (hasMore) {
+            result.setNextCursor(summaries.get(summaries.size() - 1).getId());
+        }
+        return result;
+    }
+
+    private Timer orderTimer(String name, String status, String outcome) {
+        return Timer.builder(name)
+                .tag("status", status != null && STATUSES.contains(status) ? status : "OTHER")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
     }
-}
\ No newline at end of file
+}
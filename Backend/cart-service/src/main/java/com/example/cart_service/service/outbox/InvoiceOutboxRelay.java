@@ -0,0 +1,192 @@
+package com.example.cart_service.service.outbox;
+
+import com.example.cart_service.client.InvoiceClient;
+import com.example.cart_service.entity.InvoiceOutbox;
+import com.example.cart_service.repository.InvoiceOutboxRepository;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.propagation.Propagator;
+import org.springframework.beans.factory.ObjectProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Delivers pending {@link InvoiceOutbox} rows to invoice-service outside of the checkout transaction.
+ * <p>
+ * A batch is claimed in a short transaction (rows are locked with SKIP LOCKED and leased by pushing
+ * {@code nextAttemptAt} forward), delivered without holding a connection, then each row is marked
+ * SENT or rescheduled with exponential backoff. Rows that exhaust their attempts are kept as FAILED.
+ * <p>
+ * The rows of a batch are posted concurrently (at most {@code outbox.relay.concurrency} in flight), so one
+ * slow invoice does not hold back the others. While the invoice-service circuit breaker is open nothing is
+ * claimed; a call it rejects is put back without counting as an attempt, so an outage does not use up
+ * {@code outbox.relay.max-attempts}.
+ * <p>
+ * Each delivery is traced as a child of the checkout request that enqueued the row (its {@code traceparent}
+ * is stored on the row), so the invoice-service hop shows up in the same trace as the checkout.
+ */
+@Component
+public class InvoiceOutboxRelay {
+
+    private static final Logger LOG = LoggerFactory.getLogger(InvoiceOutboxRelay.class);
+
+    static final String TRACE_PARENT = "traceparent";
+
+    private final InvoiceOutboxRepository invoiceOutboxRepository;
+    private final InvoiceClient invoiceClient;
+    private final TransactionTemplate transactionTemplate;
+    private final Tracer tracer;
+    private final Propagator propagator;
+
+    @Value("${outbox.relay.batch-size:50}")
+    private int batchSize;
+
+    @Value("${outbox.relay.concurrency:8}")
+    private int concurrency;
+
+    @Value("${outbox.relay.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${outbox.relay.lease:30s}")
+    private Duration lease;
+
+    @Value("${outbox.relay.initial-backoff:1s}")
+    private Duration initialBackoff;
+
+    @Value("${outbox.relay.max-backoff:5m}")
+    private Duration maxBackoff;
+
+    public InvoiceOutboxRelay(InvoiceOutboxRepository invoiceOutboxRepository, InvoiceClient invoiceClient,
+                              PlatformTransactionManager transactionManager,
+                              ObjectProvider<Tracer> tracer, ObjectProvider<Propagator> propagator) {
+        this.invoiceOutboxRepository = invoiceOutboxRepository;
+        this.invoiceClient = invoiceClient;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.tracer = tracer.getIfAvailable(() -> Tracer.NOOP);
+        this.propagator = propagator.getIfAvailable(() -> Propagator.NOOP);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.fixed-delay:1000}")
+    public void relay() {
+        List<InvoiceOutbox> batch;
+        boolean rejected = false;
+        do {
+            if (!invoiceClient.isAvailable()) {
+                return;
+            }
+            batch = claimBatch();
+            for (Delivery delivery : deliver(batch)) {
+                if (delivery.error() == null) {
+                    markSent(delivery.outbox());
+                } else if (delivery.error() instanceof CallNotPermittedException
+                        || delivery.error() instanceof BulkheadFullException) {
+                    postpone(delivery.outbox());
+                    rejected = true;
+                } else {
+                    markFailed(delivery.outbox(), delivery.error());
+                }
+            }
+        } while (!rejected && batch.size() == batchSize);
+    }
+
+    private List<InvoiceOutbox> claimBatch() {
+        return transactionTemplate.execute(status -> {
+            Instant now = Instant.now();
+            List<InvoiceOutbox> due = invoiceOutboxRepository.findDueForUpdate(now, PageRequest.of(0, batchSize));
+            for (InvoiceOutbox outbox : due) {
+                outbox.setNextAttemptAt(now.plus(lease));
+            }
+            return invoiceOutboxRepository.saveAll(due);
+        });
+    }
+
+    // Chỉ gọi HTTP song song; cập nhật trạng thái vẫn chạy trên luồng của scheduler sau khi cả batch xong
+    private List<Delivery> deliver(List<InvoiceOutbox> batch) {
+        if (batch.isEmpty()) {
+            return List.of();
+        }
+        // InvoiceClient chỉ hoàn tất khi hóa đơn được tạo hoặc đã tồn tại (409); mọi trường hợp khác là lỗi
+        return Flux.fromIterable(batch)
+                .flatMap(outbox -> traced(outbox)
+                        .thenReturn(new Delivery(outbox, null))
+                        .onErrorResume(e -> Mono.just(new Delivery(outbox, e))), concurrency)
+                .collectList()
+                .block();
+    }
+
+    private void markSent(InvoiceOutbox outbox) {
+        outbox.setStatus(InvoiceOutbox.STATUS_SENT);
+        outbox.setSentAt(Instant.now());
+        outbox.setLastError(null);
+        transactionTemplate.executeWithoutResult(status -> invoiceOutboxRepository.save(outbox));
+    }
+
+    private Mono<Void> traced(InvoiceOutbox outbox) {
+        if (outbox.getTraceParent() == null) {
+            return invoiceClient.create(outbox.getPayload(), outbox.getIdempotencyKey());
+        }
+        Span span = propagator.extract(outbox.getTraceParent(),
+                        (traceParent, key) -> TRACE_PARENT.equals(key) ? traceParent : null)
+                .name("invoice outbox delivery")
+                .tag("outbox.idempotency_key", outbox.getIdempotencyKey())
+                .tag("outbox.attempt", String.valueOf(outbox.getAttempts() + 1))
+                .start();
+        // WebClient mở span client và ghi header traceparent ngay lúc subscribe,
+        // nên phải subscribe (toFuture) khi span này đang là span hiện tại của luồng
+        return Mono.fromFuture(() -> {
+                    try (Tracer.SpanInScope ignored = tracer.withSpan(span)) {
+                        return invoiceClient.create(outbox.getPayload(), outbox.getIdempotencyKey()).toFuture();
+                    }
+                })
+                .doOnError(span::error)
+                .doFinally(signal -> span.end());
+    }
+
+    private void postpone(InvoiceOutbox outbox) {
+        outbox.setNextAttemptAt(Instant.now().plus(initialBackoff));
+        transactionTemplate.executeWithoutResult(status -> invoiceOutboxRepository.save(outbox));
+    }
+
+    private void markFailed(InvoiceOutbox outbox, Throwable e) {
+        int attempts = outbox.getAttempts() + 1;
+        outbox.setAttempts(attempts);
+        outbox.setLastError(truncate(e.getMessage()));
+        if (attempts >= maxAttempts) {
+            outbox.setStatus(InvoiceOutbox.STATUS_FAILED);
+            LOG.error("Giving up on invoice {} after {} attempts", outbox.getIdempotencyKey(), attempts, e);
+        } else {
+            outbox.setNextAttemptAt(Instant.now().plus(backoff(attempts)));
+            LOG.warn("Invoice {} delivery failed (attempt {}): {}", outbox.getIdempotencyKey(), attempts, e.getMessage());
+        }
+        transactionTemplate.executeWithoutResult(status -> invoiceOutboxRepository.save(outbox));
+    }
+
+    private Duration backoff(int attempts) {
+        Duration delay = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+
+    private record Delivery(InvoiceOutbox outbox, Throwable error) {
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() > 500 ? message.substring(0, 500) : message;
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.cart_service.service.outbox;
+
+import com.example.cart_service.entity.InvoiceOutbox;
+import com.example.cart_service.entity.Order;
+import com.example.cart_service.entity.OrderDetail;
+import com.example.cart_service.repository.InvoiceOutboxRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.propagation.Propagator;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class InvoiceOutboxService {
+
+    private final InvoiceOutboxRepository invoiceOutboxRepository;
+    private final ObjectMapper objectMapper;
+    private final Tracer tracer;
+    private final Propagator propagator;
+
+    public InvoiceOutboxService(InvoiceOutboxRepository invoiceOutboxRepository, ObjectMapper objectMapper,
+                                ObjectProvider<Tracer> tracer, ObjectProvider<Propagator> propagator) {
+        this.invoiceOutboxRepository = invoiceOutboxRepository;
+        this.objectMapper = objectMapper;
+        this.tracer = tracer.getIfAvailable(() -> Tracer.NOOP);
+        this.propagator = propagator.getIfAvailable(() -> Propagator.NOOP);
+    }
+
+    /**
+     * Records an invoice request for the given order. Must run inside the transaction that
+     * saves the order so that either both rows are committed or neither is.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(Order order, String invoiceType) {
+        String idempotencyKey = idempotencyKey(order.getId(), invoiceType);
+        if (invoiceOutboxRepository.existsByIdempotencyKey(idempotencyKey)) {
+            return;
+        }
+
+        InvoiceOutbox outbox = new InvoiceOutbox();
+        outbox.setIdempotencyKey(idempotencyKey);
+        outbox.setOrderId(order.getId());
+        outbox.setInvoiceType(invoiceType);
+        outbox.setPayload(toPayload(order, invoiceType));
+        outbox.setNextAttemptAt(Instant.now());
+        outbox.setTraceParent(currentTraceParent());
+        invoiceOutboxRepository.save(outbox);
+    }
+
+    public static String idempotencyKey(Integer orderId, String invoiceType) {
+        return "INVOICE:" + orderId + ":" + invoiceType;
+    }
+
+    private String currentTraceParent() {
+        Span span = tracer.currentSpan();
+        if (span == null) {
+            return null;
+        }
+        Map<String, String> headers = new HashMap<>();
+        propagator.inject(span.context(), headers, Map::put);
+        return headers.get(InvoiceOutboxRelay.TRACE_PARENT);
+    }
+
+    private String toPayload(Order order, String invoiceType) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("orderId", order.getId());
+        payload.put("code", order.getCode());
+        payload.put("invoiceType", invoiceType); // COMPLETED, RETURNED, ...
+        payload.put("customerName", order.getCustomerName());
+        payload.put("totalAmount", order.getFinalPrice());
+        payload.put("paymentMethod", order.getPaymentMethod());
+
+        List<Map<String, Object>> detailList = new ArrayList<>();
+        if (order.getOrderDetails() != null) {
+            for (OrderDetail d : order.getOrderDetails()) {
+                Map<String, Object> item = new HashMap<>();
+                item.put("productId", d.getProductId());
+                item.put("productName", d.getProductName());
+                item.put("quantity", d.getQuantityProduct());
+                item.put("unitPrice", d.getUnitPrice());
+                detailList.add(item);
+            }
+        }
+        payload.put("items", detailList);
+
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize invoice payload for order " + order.getId(), e);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.cart_service.service.redis;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Hands out sequence numbers for one code prefix from a block reserved in Redis.
+ * <p>
+ * {@code reserveBlock} is called with the block size and must return the new upper bound of the shared
+ * counter (a single {@code HINCRBY}); the allocator then serves {@code upper - blockSize + 1 .. upper}
+ * from memory. Only the thread that finds the block exhausted talks to Redis. The refill is guarded by a
+ * {@link ReentrantLock} rather than {@code synchronized} so a virtual thread waiting on Redis does not pin
+ * its carrier thread.
+ */
+class CodeBlockAllocator {
+
+    private final int blockSize;
+    private final LongUnaryOperator reserveBlock;
+    private final AtomicReference<Block> current = new AtomicReference<>(Block.EMPTY);
+    private final ReentrantLock refillLock = new ReentrantLock();
+
+    CodeBlockAllocator(int blockSize, LongUnaryOperator reserveBlock) {
+        this.blockSize = blockSize;
+        this.reserveBlock = reserveBlock;
+    }
+
+    long next() {
+        while (true) {
+            Block block = current.get();
+            long value = block.take();
+            if (value > 0) {
+                return value;
+            }
+            refill(block);
+        }
+    }
+
+    long remaining() {
+        return current.get().remaining();
+    }
+
+    int blockSize() {
+        return blockSize;
+    }
+
+    private void refill(Block exhausted) {
+        refillLock.lock();
+        try {
+            if (current.get() != exhausted) {
+                return; // another thread already refilled
+            }
+            long upper = reserveBlock.applyAsLong(blockSize);
+            current.set(new Block(upper - blockSize + 1, upper));
+        } finally {
+            refillLock.unlock();
+        }
+    }
+
+    private static final class Block {
+
+        static final Block EMPTY = new Block(1, 0);
+
+        private final AtomicLong next;
+        private final long upper;
+
+        Block(long first, long upper) {
+            this.next = new AtomicLong(first);
+            this.upper = upper;
+        }
+
+        long take() {
+            long value = next.getAndIncrement();
+            return value <= upper ? value : -1;
+        }
+
+        long remaining() {
+            return Math.max(0, upper - next.get() + 1);
+        }
+    }
+}
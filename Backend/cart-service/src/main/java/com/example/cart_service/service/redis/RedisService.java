@@ -1,38 +1,93 @@
 package com.example.cart_service.service.redis;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 
 import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class RedisService {
 
     private final RedisTemplate<String, Object> redisTemplate;
+    private final MeterRegistry meterRegistry;
     private static final String REDIS_KEY = "SEQUENCE";
 
-    public RedisService(RedisTemplate<String, Object> redisTemplate) {
+    private final Map<String, CodeBlockAllocator> allocators = new ConcurrentHashMap<>();
+    private final Map<String, Timer> generateTimers = new ConcurrentHashMap<>();
+    private final int defaultBlockSize;
+    private final Map<String, Integer> prefixBlockSizes;
+
+    public RedisService(RedisTemplate<String, Object> redisTemplate, MeterRegistry meterRegistry,
+                        @Value("${order.code.block-size:1000}") int defaultBlockSize,
+                        @Value("${order.code.block-sizes:}") String prefixBlockSizes) {
         this.redisTemplate = redisTemplate;
+        this.meterRegistry = meterRegistry;
+        this.defaultBlockSize = defaultBlockSize;
+        this.prefixBlockSizes = parseBlockSizes(prefixBlockSizes);
     }
 
+    /**
+     * Returns the next code for the prefix, e.g. {@code DH1234}. Numbers come from a block reserved with one
+     * {@code HINCRBY SEQUENCE <prefix> <blockSize>}, so codes stay unique across instances but are not
+     * gap-free: the unused part of a block is skipped when the instance restarts.
+     */
     public String genCode(String code) {
-        Long newValue = redisTemplate.execute((RedisCallback<Long>) connection -> {
-            byte[] redisKey = REDIS_KEY.getBytes(StandardCharsets.UTF_8);
-            byte[] redisField = code.getBytes(StandardCharsets.UTF_8);
-
-            var hashCommands = connection.hashCommands();
+        Timer timer = generateTimers.computeIfAbsent(code, prefix -> Timer.builder("order.code.generate")
+                .description("Time to hand out one order code, including block refills")
+                .tag("prefix", prefix)
+                .register(meterRegistry));
+        return timer.record(() -> code + allocators.computeIfAbsent(code, this::newAllocator).next());
+    }
 
-            Boolean exists = hashCommands.hExists(redisKey, redisField);
+    private CodeBlockAllocator newAllocator(String prefix) {
+        int blockSize = prefixBlockSizes.getOrDefault(prefix, defaultBlockSize);
+        Counter refills = Counter.builder("order.code.block.refills")
+                .description("Sequence blocks reserved from Redis")
+                .tag("prefix", prefix)
+                .register(meterRegistry);
+        Timer refillTimer = Timer.builder("order.code.block.refill.duration")
+                .tag("prefix", prefix)
+                .register(meterRegistry);
 
-            if (Boolean.FALSE.equals(exists)) {
-                hashCommands.hSet(redisKey, redisField, "1".getBytes(StandardCharsets.UTF_8));
-                return 1L;
-            } else {
-                return hashCommands.hIncrBy(redisKey, redisField, 1);
+        CodeBlockAllocator allocator = new CodeBlockAllocator(blockSize, size -> refillTimer.record(() -> {
+            refills.increment();
+            Long upper = redisTemplate.execute((RedisCallback<Long>) connection -> connection.hashCommands()
+                    .hIncrBy(REDIS_KEY.getBytes(StandardCharsets.UTF_8), prefix.getBytes(StandardCharsets.UTF_8), size));
+            if (upper == null) {
+                throw new IllegalStateException("Could not reserve code block for prefix " + prefix);
             }
-        });
+            return upper;
+        }));
 
-        return code + newValue;
+        Gauge.builder("order.code.block.remaining", allocator, CodeBlockAllocator::remaining)
+                .description("Codes left in the current block")
+                .tag("prefix", prefix)
+                .register(meterRegistry);
+        return allocator;
+    }
+
+    // order.code.block-sizes=DH:1000,TH:100
+    private static Map<String, Integer> parseBlockSizes(String value) {
+        Map<String, Integer> sizes = new HashMap<>();
+        if (value == null || value.isBlank()) {
+            return sizes;
+        }
+        for (String entry : value.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid order.code.block-sizes entry: " + entry);
+            }
+            sizes.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+        }
+        return sizes;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,74 @@
+package com.example.cart_service.service.redis;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The lock on {@code stock:reconcile:lock} that keeps writes to the stock counters from product-service data
+ * apart: applying queued movements, resyncing counters and seeding missing counters.
+ * <p>
+ * Every acquisition gets its own token, so two holders on the same instance (the scheduler and a request
+ * thread) cannot extend or release each other's lock.
+ */
+@Component
+public class StockLock {
+
+    static final String LOCK_KEY = StockReservationService.RECONCILE_QUEUE_KEY + ":lock";
+
+    private static final long POLL_MILLIS = 50;
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final RedisScript<Long> stockLockRenewScript;
+    private final RedisScript<Long> stockLockReleaseScript;
+
+    @Value("${stock.reconcile.lock-ttl:30s}")
+    private Duration lockTtl;
+
+    public StockLock(RedisTemplate<String, Object> redisTemplate,
+                     RedisScript<Long> stockLockRenewScript,
+                     RedisScript<Long> stockLockReleaseScript) {
+        this.redisTemplate = redisTemplate;
+        this.stockLockRenewScript = stockLockRenewScript;
+        this.stockLockReleaseScript = stockLockReleaseScript;
+    }
+
+    /** Returns the token of the acquired lock, or null when it is held elsewhere. */
+    public String tryAcquire() {
+        String token = UUID.randomUUID().toString();
+        return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(LOCK_KEY, token, lockTtl)) ? token : null;
+    }
+
+    /** Waits up to {@code maxWait} for the lock; returns its token, or null when it was not free in time. */
+    public String acquire(Duration maxWait) {
+        long deadline = System.nanoTime() + maxWait.toNanos();
+        while (true) {
+            String token = tryAcquire();
+            if (token != null || System.nanoTime() >= deadline) {
+                return token;
+            }
+            try {
+                Thread.sleep(POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+    }
+
+    // chỉ gia hạn khi lock vẫn thuộc token này
+    public boolean renew(String token) {
+        Long renewed = redisTemplate.execute(stockLockRenewScript, List.of(LOCK_KEY),
+                token, Long.toString(lockTtl.toMillis()));
+        return renewed != null && renewed == 1;
+    }
+
+    public void release(String token) {
+        redisTemplate.execute(stockLockReleaseScript, List.of(LOCK_KEY), token);
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.cart_service.service.redis;
+
+import com.example.cart_service.client.ProductClient;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisListCommands;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies the stock movements queued by {@link StockReservationService} to {@code Product.stock}
+ * through product-service's bulk inventory endpoint, oldest first.
+ * <p>
+ * Only one cart-service instance drains the queue at a time (guarded by {@link StockLock}). The lock is
+ * extended before every entry and the round stops as soon as it is lost, so a round longer than the lock TTL
+ * never overlaps with another instance. An entry is removed once product-service accepted it. Each entry
+ * carries a unique {@code ref} that product-service records with the stock change, so an entry sent again
+ * (after a timeout, or a crash before it was removed) is not applied twice.
+ * <p>
+ * Entries product-service rejects (4xx, e.g. the database has less stock than the ledger) are moved to
+ * {@code stock:reconcile:dead}; its size is exported as the {@code stock.reconcile.dead} gauge for alerting,
+ * and {@link #replayDeadLetters()} puts the entries back on the queue once the cause is fixed. Any other
+ * failure stops the round and the entry is retried on the next one, including calls rejected by the
+ * product-service circuit breaker; while the breaker is open no round is started and movements simply wait
+ * in the queue.
+ * <p>
+ * Under the same lock it periodically resyncs the stock counters with product-service
+ * ({@link StockReservationService#resyncCounters}), so that stock changed there directly does not drift.
+ */
+@Component
+public class StockReconciler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StockReconciler.class);
+
+    static final String DEAD_LETTER_KEY = StockReservationService.RECONCILE_QUEUE_KEY + ":dead";
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final StockReservationService stockReservationService;
+    private final ProductClient productClient;
+    private final ObjectMapper objectMapper;
+    private final StockLock stockLock;
+
+    @Value("${stock.reconcile.batch-size:100}")
+    private int batchSize;
+
+    public StockReconciler(RedisTemplate<String, Object> redisTemplate,
+                           StockReservationService stockReservationService,
+                           ProductClient productClient,
+                           ObjectMapper objectMapper,
+                           StockLock stockLock,
+                           MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.stockReservationService = stockReservationService;
+        this.productClient = productClient;
+        this.objectMapper = objectMapper;
+        this.stockLock = stockLock;
+        Gauge.builder("stock.reconcile.dead", this, StockReconciler::deadLetterCount)
+                .description("Stock movements rejected by product-service, waiting for a replay")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${stock.reconcile.fixed-delay:1000}")
+    public void reconcile() {
+        String token = productClient.isAvailable() ? stockLock.tryAcquire() : null;
+        if (token == null) {
+            return;
+        }
+        try {
+            List<Object> entries = redisTemplate.opsForList()
+                    .range(StockReservationService.RECONCILE_QUEUE_KEY, 0, batchSize - 1);
+            if (entries == null) {
+                return;
+            }
+            for (Object entry : entries) {
+                if (!stockLock.renew(token)) {
+                    LOG.warn("Stock reconcile lock lost, stopping the round");
+                    return;
+                }
+                if (!apply(entry.toString())) {
+                    return;
+                }
+                redisTemplate.opsForList().leftPop(StockReservationService.RECONCILE_QUEUE_KEY);
+            }
+        } finally {
+            stockLock.release(token);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${stock.resync.fixed-delay:60000}", fixedDelayString = "${stock.resync.fixed-delay:60000}")
+    public void resync() {
+        String token = productClient.isAvailable() ? stockLock.tryAcquire() : null;
+        if (token == null) {
+            return;
+        }
+        try {
+            stockReservationService.resyncCounters(() -> stockLock.renew(token));
+        } catch (Exception e) {
+            LOG.warn("Stock counter resync failed, will retry: {}", e.getMessage());
+        } finally {
+            stockLock.release(token);
+        }
+    }
+
+    /**
+     * Moves every dead-lettered movement back to the end of the queue, to be applied again by the next
+     * rounds. Returns the number of entries moved.
+     */
+    public long replayDeadLetters() {
+        long replayed = 0;
+        while (redisTemplate.opsForList().move(DEAD_LETTER_KEY, RedisListCommands.Direction.LEFT,
+                StockReservationService.RECONCILE_QUEUE_KEY, RedisListCommands.Direction.RIGHT) != null) {
+            replayed++;
+        }
+        if (replayed > 0) {
+            LOG.info("Replayed {} dead-lettered stock movements", replayed);
+        }
+        return replayed;
+    }
+
+    private double deadLetterCount() {
+        try {
+            Long size = redisTemplate.opsForList().size(DEAD_LETTER_KEY);
+            return size == null ? 0 : size;
+        } catch (Exception e) {
+            return Double.NaN;
+        }
+    }
+
+    // true khi entry đã xử lý xong (thành công hoặc chuyển sang dead letter), false khi cần thử lại
+    private boolean apply(String entry) {
+        try {
+            Map<?, ?> movement = objectMapper.readValue(entry, Map.class);
+            Object ref = movement.get("ref");
+            productClient.applyInventory(ref == null ? null : ref.toString(), movement.get("items"));
+            return true;
+        } catch (JsonProcessingException e) {
+            LOG.error("Malformed stock movement {}", entry, e);
+            redisTemplate.opsForList().rightPush(DEAD_LETTER_KEY, entry);
+            return true;
+        } catch (WebClientResponseException e) {
+            if (!e.getStatusCode().is4xxClientError()) {
+                LOG.warn("Stock reconciliation failed, will retry: {}", e.getMessage());
+                return false;
+            }
+            LOG.error("Product service rejected stock movement {}: {}", entry, e.getResponseBodyAsString());
+            redisTemplate.opsForList().rightPush(DEAD_LETTER_KEY, entry);
+            return true;
+        } catch (CallNotPermittedException | BulkheadFullException e) {
+            LOG.debug("Stock reconciliation deferred: {}", e.getMessage());
+            return false;
+        } catch (Exception e) {
+            LOG.warn("Stock reconciliation failed, will retry: {}", e.getMessage());
+            return false;
+        }
+    }
+}
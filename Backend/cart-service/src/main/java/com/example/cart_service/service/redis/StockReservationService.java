@@ -0,0 +1,325 @@
+package com.example.cart_service.service.redis;
+
+import com.example.cart_service.client.ProductClient;
+import com.example.cart_service.dto.response.OrderItemResponse;
+import com.example.cart_service.entity.OrderDetail;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Live stock ledger kept in Redis.
+ * <p>
+ * {@code stock:available:{productId}} holds the quantity that can still be sold. A DRAFT order reserves
+ * its lines into {@code stock:hold:{orderId}}; completing the order commits the hold, cancelling it
+ * releases the hold, and holds that are not touched within the hold TTL are released by
+ * {@link #releaseExpiredHolds()}. Commits and restocks push an entry onto {@code stock:reconcile}
+ * which {@link StockReconciler} applies to {@code Product.stock} in product-service.
+ * <p>
+ * Counters are seeded from product-service on first use and expire after the counter TTL. Stock changed in
+ * product-service directly (e.g. an admin editing a product) is picked up by {@link #resyncCounters()}, which
+ * {@link StockReconciler} runs periodically: it recomputes every counter from {@code Product.stock}, the open
+ * holds and the movements still waiting in the queue.
+ */
+@Service
+public class StockReservationService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StockReservationService.class);
+
+    public static final String AVAILABLE_KEY_PREFIX = "stock:available:";
+    public static final String HOLD_KEY_PREFIX = "stock:hold:";
+    public static final String HOLD_EXPIRY_KEY = "stock:hold-expiry";
+    public static final String RECONCILE_QUEUE_KEY = "stock:reconcile";
+
+    private static final int MAX_SEED_ROUNDS = 5;
+    private static final int RESYNC_BATCH_SIZE = 100;
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final RedisScript<String> stockReserveScript;
+    private final RedisScript<Long> stockCommitScript;
+    private final RedisScript<Long> stockReleaseScript;
+    private final RedisScript<Long> stockRestockScript;
+    private final RedisScript<Long> stockResyncScript;
+    private final ProductClient productClient;
+    private final StockLock stockLock;
+
+    @Value("${stock.reservation.hold-ttl:15m}")
+    private Duration holdTtl;
+
+    @Value("${stock.reservation.counter-ttl:1h}")
+    private Duration counterTtl;
+
+    @Value("${stock.reservation.seed-lock-wait:5s}")
+    private Duration seedLockWait;
+
+    @Value("${stock.reservation.sweep-batch-size:100}")
+    private int sweepBatchSize;
+
+    public StockReservationService(RedisTemplate<String, Object> redisTemplate,
+                                   RedisScript<String> stockReserveScript,
+                                   RedisScript<Long> stockCommitScript,
+                                   RedisScript<Long> stockReleaseScript,
+                                   RedisScript<Long> stockRestockScript,
+                                   RedisScript<Long> stockResyncScript,
+                                   ProductClient productClient,
+                                   StockLock stockLock) {
+        this.redisTemplate = redisTemplate;
+        this.stockReserveScript = stockReserveScript;
+        this.stockCommitScript = stockCommitScript;
+        this.stockReleaseScript = stockReleaseScript;
+        this.stockRestockScript = stockRestockScript;
+        this.stockResyncScript = stockResyncScript;
+        this.productClient = productClient;
+        this.stockLock = stockLock;
+    }
+
+    public static Map<String, Integer> quantitiesOfItems(List<OrderItemResponse> items) {
+        Map<String, Integer> quantities = new TreeMap<>();
+        if (items != null) {
+            for (OrderItemResponse item : items) {
+                quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+            }
+        }
+        return quantities;
+    }
+
+    public static Map<String, Integer> quantitiesOfDetails(List<OrderDetail> details) {
+        Map<String, Integer> quantities = new TreeMap<>();
+        if (details != null) {
+            for (OrderDetail detail : details) {
+                quantities.merge(detail.getProductId(), detail.getQuantityProduct(), Integer::sum);
+            }
+        }
+        return quantities;
+    }
+
+    /**
+     * Holds the given quantities for an order. Calling it again for an order that already has a hold
+     * moves the hold to the new quantities, taking or giving back only the difference, and extends it.
+     * Throws when a product is unknown or does not have enough stock left. When called inside a transaction,
+     * the hold is released again if that transaction rolls back.
+     */
+    public void reserve(Integer orderId, Map<String, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            release(orderId);
+            return;
+        }
+        releaseOnRollback(orderId);
+        List<String> keys = new ArrayList<>();
+        keys.add(HOLD_KEY_PREFIX + orderId);
+        keys.add(HOLD_EXPIRY_KEY);
+        List<Object> args = new ArrayList<>();
+        args.add(orderId.toString());
+        args.add(Long.toString(System.currentTimeMillis() + holdTtl.toMillis()));
+        args.add(AVAILABLE_KEY_PREFIX);
+        quantities.forEach((productId, quantity) -> {
+            keys.add(AVAILABLE_KEY_PREFIX + productId);
+            args.add(productId);
+            args.add(quantity.toString());
+        });
+
+        for (int round = 0; round < MAX_SEED_ROUNDS; round++) {
+            String result = redisTemplate.execute(stockReserveScript, keys, args.toArray());
+            if ("OK".equals(result)) {
+                return;
+            }
+            if (result != null && result.startsWith("MISSING:")) {
+                // script chỉ báo sản phẩm thiếu đầu tiên, khởi tạo luôn mọi bộ đếm còn thiếu của đơn trong một lượt
+                seedMissing(quantities.keySet());
+                continue;
+            }
+            if (result != null && result.startsWith("SHORT:")) {
+                String[] parts = result.split(":");
+                throw new RuntimeException("Insufficient stock for product: " + parts[1] + " (available " + parts[2] + ")");
+            }
+            throw new IllegalStateException("Unexpected stock reservation result: " + result);
+        }
+        throw new IllegalStateException("Could not seed stock counters for order " + orderId);
+    }
+
+    public void commitAfterTransaction(Integer orderId) {
+        afterCommit(() -> {
+            Long committed = redisTemplate.execute(stockCommitScript,
+                    List.of(HOLD_KEY_PREFIX + orderId, HOLD_EXPIRY_KEY, RECONCILE_QUEUE_KEY),
+                    orderId.toString(), movementRef(orderId, "commit"));
+            if (committed == null || committed == 0) {
+                LOG.warn("No stock hold to commit for order {}", orderId);
+            }
+        });
+    }
+
+    public void releaseAfterTransaction(Integer orderId) {
+        afterCommit(() -> release(orderId));
+    }
+
+    public void restockAfterTransaction(Integer orderId, Map<String, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        afterCommit(() -> {
+            List<String> keys = new ArrayList<>();
+            keys.add(RECONCILE_QUEUE_KEY);
+            List<Object> args = new ArrayList<>();
+            args.add(movementRef(orderId, "restock"));
+            quantities.forEach((productId, quantity) -> {
+                keys.add(AVAILABLE_KEY_PREFIX + productId);
+                args.add(productId);
+                args.add(quantity.toString());
+            });
+            redisTemplate.execute(stockRestockScript, keys, args.toArray());
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${stock.reservation.sweep-delay:5000}")
+    public void releaseExpiredHolds() {
+        Set<Object> expired = redisTemplate.opsForZSet()
+                .rangeByScore(HOLD_EXPIRY_KEY, 0, System.currentTimeMillis(), 0, sweepBatchSize);
+        if (expired == null) {
+            return;
+        }
+        for (Object orderId : expired) {
+            if (release(orderId.toString())) {
+                LOG.info("Released expired stock hold of order {}", orderId);
+            }
+        }
+    }
+
+    private boolean release(Object orderId) {
+        Long released = redisTemplate.execute(stockReleaseScript,
+                List.of(HOLD_KEY_PREFIX + orderId, HOLD_EXPIRY_KEY),
+                orderId.toString(), AVAILABLE_KEY_PREFIX);
+        return released != null && released == 1;
+    }
+
+    /**
+     * Recomputes every stock counter from product-service. Counters of products that no longer exist are
+     * deleted. Must not run concurrently with {@link StockReconciler} applying movements, which is why it
+     * is called from there under the reconcile lock; it stops as soon as {@code stillLocked} returns false.
+     */
+    public void resyncCounters(BooleanSupplier stillLocked) {
+        List<String> productIds = new ArrayList<>();
+        ScanOptions options = ScanOptions.scanOptions().match(AVAILABLE_KEY_PREFIX + "*").count(RESYNC_BATCH_SIZE).build();
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            cursor.forEachRemaining(key -> productIds.add(key.substring(AVAILABLE_KEY_PREFIX.length())));
+        }
+        for (int from = 0; from < productIds.size() && stillLocked.getAsBoolean(); from += RESYNC_BATCH_SIZE) {
+            List<String> batch = productIds.subList(from, Math.min(from + RESYNC_BATCH_SIZE, productIds.size()));
+            writeCounters(batch, productClient.getStocks(batch), false);
+        }
+    }
+
+    // Khởi tạo các bộ đếm tồn kho chưa có trong Redis từ product-service, một lời gọi /products/batch cho cả đơn
+    private void seedMissing(Collection<String> productIds) {
+        List<String> ids = new ArrayList<>(productIds);
+        List<Object> current = redisTemplate.opsForValue()
+                .multiGet(ids.stream().map(id -> AVAILABLE_KEY_PREFIX + id).toList());
+        List<String> missing = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            if (current == null || current.get(i) == null) {
+                missing.add(ids.get(i));
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        // cùng lock với StockReconciler: không khởi tạo bộ đếm giữa lúc một biến động đang được áp dụng hay đang resync
+        String token = stockLock.acquire(seedLockWait);
+        if (token == null) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Stock ledger is busy, please try again");
+        }
+        try {
+            Map<String, Integer> stocks = productClient.getStocks(missing);
+            for (String productId : missing) {
+                if (stocks.get(productId) == null) {
+                    throw new RuntimeException("Product not found: " + productId);
+                }
+            }
+            writeCounters(missing, stocks, true);
+        } finally {
+            stockLock.release(token);
+        }
+    }
+
+    // Ghi bộ đếm = tồn kho DB - hàng đang giữ - phần trong hàng đợi chưa áp dụng (xem stock_resync.lua)
+    private void writeCounters(List<String> productIds, Map<String, Integer> stocks, boolean onlyMissing) {
+        List<String> keys = new ArrayList<>();
+        keys.add(HOLD_EXPIRY_KEY);
+        keys.add(RECONCILE_QUEUE_KEY);
+        List<Object> args = new ArrayList<>();
+        args.add(HOLD_KEY_PREFIX);
+        args.add(Long.toString(counterTtl.toSeconds()));
+        args.add(onlyMissing ? "1" : "0");
+        for (String productId : productIds) {
+            Integer stock = stocks.get(productId);
+            keys.add(AVAILABLE_KEY_PREFIX + productId);
+            args.add(productId);
+            args.add(stock == null ? "" : stock.toString());
+        }
+        redisTemplate.execute(stockResyncScript, keys, args.toArray());
+    }
+
+    // Mỗi biến động có ref riêng: product-service dựa vào ref để không áp dụng một entry hai lần,
+    // và một đơn có thể được chốt/hoàn kho nhiều lần qua các lần đổi trạng thái
+    private static String movementRef(Integer orderId, String operation) {
+        return "order:" + orderId + ":" + operation + ":" + UUID.randomUUID();
+    }
+
+    // Giữ hàng chạy trước khi transaction của đơn commit: rollback thì trả lại ngay, không chờ hết hold TTL
+    private void releaseOnRollback(Integer orderId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_ROLLED_BACK) {
+                    return;
+                }
+                try {
+                    release(orderId);
+                } catch (Exception e) {
+                    LOG.error("Could not release stock hold of rolled back order {}, it expires on its own", orderId, e);
+                }
+            }
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    action.run();
+                } catch (Exception e) {
+                    // the order is already committed, the hold is left to expire on its own
+                    LOG.error("Stock ledger update failed after commit", e);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,18 @@
+-- Turn a hold into a sale: drop the hold and queue the stock decrement for product-service.
+-- KEYS[1] = hold hash, KEYS[2] = hold expiry zset, KEYS[3] = reconcile queue
+-- ARGV[1] = hold id, ARGV[2] = reference written into the queue entry
+-- Returns 1 when committed, 0 when no hold exists (already committed, released or expired).
+local hold = redis.call('HGETALL', KEYS[1])
+if #hold == 0 then
+    redis.call('ZREM', KEYS[2], ARGV[1])
+    return 0
+end
+
+local items = {}
+for i = 1, #hold, 2 do
+    items[#items + 1] = { productId = hold[i], quantity = tonumber(hold[i + 1]), operation = -1 }
+end
+redis.call('RPUSH', KEYS[3], cjson.encode({ ref = ARGV[2], items = items }))
+redis.call('DEL', KEYS[1])
+redis.call('ZREM', KEYS[2], ARGV[1])
+return 1
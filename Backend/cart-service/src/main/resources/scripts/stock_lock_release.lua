@@ -0,0 +1,8 @@
+-- Release the reconcile lock, only when it is still held by this instance.
+-- KEYS[1] = lock key
+-- ARGV[1] = instance id
+-- Returns 1 when the lock was released, 0 otherwise.
+if redis.call('GET', KEYS[1]) == ARGV[1] then
+    return redis.call('DEL', KEYS[1])
+end
+return 0
@@ -0,0 +1,8 @@
+-- Extend the reconcile lock, only while it is still held by this instance.
+-- KEYS[1] = lock key
+-- ARGV[1] = instance id, ARGV[2] = lock TTL (ms)
+-- Returns 1 when the lock was extended, 0 when another instance holds it or it has expired.
+if redis.call('GET', KEYS[1]) == ARGV[1] then
+    return redis.call('PEXPIRE', KEYS[1], ARGV[2])
+end
+return 0
@@ -0,0 +1,19 @@
+-- Give the held quantities back to the available counters.
+-- KEYS[1] = hold hash, KEYS[2] = hold expiry zset
+-- ARGV[1] = hold id, ARGV[2] = available counter key prefix
+-- Counter keys are derived from the hold content, which is fine on the standalone Redis used here.
+-- Returns 1 when released, 0 when no hold exists.
+local hold = redis.call('HGETALL', KEYS[1])
+redis.call('ZREM', KEYS[2], ARGV[1])
+if #hold == 0 then
+    return 0
+end
+
+for i = 1, #hold, 2 do
+    local counter = ARGV[2] .. hold[i]
+    if redis.call('EXISTS', counter) == 1 then
+        redis.call('INCRBY', counter, hold[i + 1])
+    end
+end
+redis.call('DEL', KEYS[1])
+return 1
@@ -0,0 +1,50 @@
+-- Reserve stock for one order, all lines or nothing. When the order already holds stock, only the difference to
+-- the held quantities is taken from (or given back to) the counters, so edits to a DRAFT order are reflected.
+-- KEYS[1] = hold hash of the order, KEYS[2] = hold expiry zset, KEYS[3..n] = available counter per product
+-- ARGV[1] = hold id, ARGV[2] = hold expiry (epoch ms), ARGV[3] = available counter key prefix,
+-- ARGV[4..] = product id / quantity pairs, same order as KEYS[3..n]
+-- Products that are held but no longer part of the order are given back; their counter keys are derived from
+-- the prefix, which is fine on the standalone Redis used here.
+-- Returns OK, MISSING:<productId> when a counter has not been seeded yet, or SHORT:<productId>:<available>.
+local lines = #KEYS - 2
+local wanted = {}
+for i = 1, lines do
+    local productId = ARGV[2 + i * 2]
+    local quantity = tonumber(ARGV[3 + i * 2])
+    wanted[productId] = true
+    local available = redis.call('GET', KEYS[i + 2])
+    if not available then
+        return 'MISSING:' .. productId
+    end
+    local held = tonumber(redis.call('HGET', KEYS[1], productId) or '0')
+    if quantity - held > tonumber(available) then
+        return 'SHORT:' .. productId .. ':' .. available
+    end
+end
+
+local hold = redis.call('HGETALL', KEYS[1])
+for i = 1, #hold, 2 do
+    if not wanted[hold[i]] then
+        local counter = ARGV[3] .. hold[i]
+        if redis.call('EXISTS', counter) == 1 then
+            redis.call('INCRBY', counter, hold[i + 1])
+        end
+        redis.call('HDEL', KEYS[1], hold[i])
+    end
+end
+
+for i = 1, lines do
+    local productId = ARGV[2 + i * 2]
+    local quantity = tonumber(ARGV[3 + i * 2])
+    local held = tonumber(redis.call('HGET', KEYS[1], productId) or '0')
+    if quantity ~= held then
+        redis.call('DECRBY', KEYS[i + 2], quantity - held)
+    end
+    if quantity > 0 then
+        redis.call('HSET', KEYS[1], productId, quantity)
+    else
+        redis.call('HDEL', KEYS[1], productId)
+    end
+end
+redis.call('ZADD', KEYS[2], ARGV[2], ARGV[1])
+return 'OK'
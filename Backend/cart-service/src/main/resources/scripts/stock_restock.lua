@@ -0,0 +1,16 @@
+-- Put sold stock back (cancelled or returned order) and queue the increment for product-service.
+-- KEYS[1] = reconcile queue, KEYS[2..n] = available counter per product
+-- ARGV[1] = reference written into the queue entry, ARGV[2..] = product id / quantity pairs, same order as KEYS[2..n]
+local items = {}
+for i = 2, #KEYS do
+    local productId = ARGV[i * 2 - 2]
+    local quantity = ARGV[i * 2 - 1]
+    if redis.call('EXISTS', KEYS[i]) == 1 then
+        redis.call('INCRBY', KEYS[i], quantity)
+    end
+    items[#items + 1] = { productId = productId, quantity = tonumber(quantity), operation = 1 }
+end
+if #items > 0 then
+    redis.call('RPUSH', KEYS[1], cjson.encode({ ref = ARGV[1], items = items }))
+end
+return #items
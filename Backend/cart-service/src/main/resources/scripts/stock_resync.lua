@@ -0,0 +1,47 @@
+-- Set available counters from product-service's stock: stock, minus what open orders hold, minus sales not yet
+-- applied to product-service, plus restocks not yet applied.
+-- KEYS[1] = hold expiry zset, KEYS[2] = reconcile queue, KEYS[3..n] = available counter per product
+-- ARGV[1] = hold key prefix, ARGV[2] = counter TTL (seconds), ARGV[3] = 1 to only create missing counters,
+-- 0 to overwrite them, ARGV[4..] = product id / stock pairs, same order as KEYS[3..n];
+-- an empty stock means the product no longer exists and its counter is deleted.
+-- Hold keys are derived from the prefix, which is fine on the standalone Redis used here.
+-- Returns the number of counters written.
+local lines = #KEYS - 2
+local productIds = {}
+local adjustment = {}
+for i = 1, lines do
+    productIds[i] = ARGV[2 + i * 2]
+    adjustment[productIds[i]] = 0
+end
+
+for _, holdId in ipairs(redis.call('ZRANGE', KEYS[1], 0, -1)) do
+    local held = redis.call('HMGET', ARGV[1] .. holdId, unpack(productIds))
+    for i = 1, lines do
+        if held[i] then
+            adjustment[productIds[i]] = adjustment[productIds[i]] - tonumber(held[i])
+        end
+    end
+end
+
+for _, entry in ipairs(redis.call('LRANGE', KEYS[2], 0, -1)) do
+    local ok, movement = pcall(cjson.decode, entry)
+    if ok and movement.items then
+        for _, item in ipairs(movement.items) do
+            if adjustment[item.productId] then
+                adjustment[item.productId] = adjustment[item.productId] + item.quantity * item.operation
+            end
+        end
+    end
+end
+
+local written = 0
+for i = 1, lines do
+    local stock = ARGV[3 + i * 2]
+    if stock == '' then
+        redis.call('DEL', KEYS[i + 2])
+    elseif ARGV[3] == '0' or redis.call('EXISTS', KEYS[i + 2]) == 0 then
+        redis.call('SET', KEYS[i + 2], tonumber(stock) + adjustment[productIds[i]], 'EX', ARGV[2])
+        written = written + 1
+    end
+end
+return written
@@ -0,0 +1,21 @@
+USE cartdb;
+CREATE TABLE invoice_outbox (
+                                id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                                idempotency_key VARCHAR(100) NOT NULL UNIQUE,
+                                order_id INT NOT NULL,
+                                invoice_type VARCHAR(50) NOT NULL,
+                                payload TEXT NOT NULL,
+                                status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+                                attempts INT NOT NULL DEFAULT 0,
+                                next_attempt_at TIMESTAMP(6) NOT NULL,
+                                last_error VARCHAR(500) DEFAULT NULL,
+                                sent_at TIMESTAMP(6) DEFAULT NULL,
+                                trace_parent VARCHAR(55) DEFAULT NULL,
+
+                                created_by VARCHAR(50) DEFAULT NULL,
+                                created_date TIMESTAMP DEFAULT NULL,
+                                last_modified_by VARCHAR(50) DEFAULT NULL,
+                                last_modified_date TIMESTAMP DEFAULT NULL,
+
+                                INDEX idx_invoice_outbox_due (status, next_attempt_at, id)
+);
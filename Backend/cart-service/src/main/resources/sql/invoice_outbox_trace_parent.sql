@@ -0,0 +1,3 @@
+USE cartdb;
+-- For databases created before trace_parent was added to invoice_outbox.sql
+ALTER TABLE invoice_outbox ADD COLUMN trace_parent VARCHAR(55) DEFAULT NULL AFTER sent_at;
@@ -0,0 +1,5 @@
+USE cartdb;
+-- Indexes backing the keyset-paginated order list (GET /orders)
+CREATE INDEX idx_orders_status_id ON orders (status, id);
+CREATE INDEX idx_orders_created_date ON orders (created_date);
+CREATE INDEX idx_orders_customer_name ON orders (customer_name);
@@ -0,0 +1,131 @@
+package com.example.cart_service.service.redis;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongUnaryOperator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CodeBlockAllocatorTest {
+
+    // Bộ đếm dùng chung giả lập HINCRBY SEQUENCE <prefix> <size>
+    private static LongUnaryOperator counter(AtomicLong shared, AtomicInteger calls) {
+        return size -> {
+            calls.incrementAndGet();
+            return shared.addAndGet(size);
+        };
+    }
+
+    @Test
+    void servesTheReservedBlockInOrderWithOneReservation() {
+        AtomicInteger calls = new AtomicInteger();
+        CodeBlockAllocator allocator = new CodeBlockAllocator(5, counter(new AtomicLong(), calls));
+
+        assertThat(allocator.remaining()).isZero();
+        List<Long> values = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            values.add(allocator.next());
+        }
+
+        assertThat(values).containsExactly(1L, 2L, 3L, 4L, 5L);
+        assertThat(calls).hasValue(1);
+        assertThat(allocator.remaining()).isZero();
+    }
+
+    @Test
+    void refillsWhenTheBlockIsExhausted() {
+        AtomicInteger calls = new AtomicInteger();
+        CodeBlockAllocator allocator = new CodeBlockAllocator(3, counter(new AtomicLong(), calls));
+
+        for (int i = 0; i < 3; i++) {
+            allocator.next();
+        }
+        assertThat(allocator.next()).isEqualTo(4);
+        assertThat(calls).hasValue(2);
+        assertThat(allocator.remaining()).isEqualTo(2);
+    }
+
+    @Test
+    void rollsOverToTheBlockRedisHandsOutWhenAnotherInstanceReservedInBetween() {
+        AtomicLong shared = new AtomicLong();
+        AtomicInteger calls = new AtomicInteger();
+        CodeBlockAllocator first = new CodeBlockAllocator(10, counter(shared, calls));
+        CodeBlockAllocator second = new CodeBlockAllocator(10, counter(shared, calls));
+
+        assertThat(first.next()).isEqualTo(1);
+        assertThat(second.next()).isEqualTo(11);
+        for (int i = 2; i <= 10; i++) {
+            assertThat(first.next()).isEqualTo(i);
+        }
+
+        // block 11..20 thuộc instance kia, instance này nhảy sang 21..30
+        assertThat(first.next()).isEqualTo(21);
+        assertThat(second.next()).isEqualTo(12);
+        assertThat(calls).hasValue(3);
+    }
+
+    @Test
+    void keepsTheBlockExhaustedWhenAReservationFails() {
+        AtomicLong shared = new AtomicLong();
+        AtomicInteger failures = new AtomicInteger(1);
+        CodeBlockAllocator allocator = new CodeBlockAllocator(2, size -> {
+            if (failures.getAndDecrement() > 0) {
+                throw new IllegalStateException("Redis down");
+            }
+            return shared.addAndGet(size);
+        });
+
+        assertThatThrownBy(allocator::next).isInstanceOf(IllegalStateException.class);
+        assertThat(allocator.remaining()).isZero();
+        assertThat(allocator.next()).isEqualTo(1);
+        assertThat(allocator.next()).isEqualTo(2);
+    }
+
+    @Test
+    void concurrentCallersGetUniqueValuesAndOneReservationPerBlock() throws Exception {
+        int threads = 8;
+        int perThread = 1_000;
+        int blockSize = 100;
+        AtomicInteger calls = new AtomicInteger();
+        CodeBlockAllocator allocator = new CodeBlockAllocator(blockSize, counter(new AtomicLong(), calls));
+
+        Set<Long> values = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        values.add(allocator.next());
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int total = threads * perThread;
+        assertThat(values).hasSize(total);
+        assertThat(values).allMatch(value -> value >= 1 && value <= total);
+        assertThat(calls).hasValue(total / blockSize);
+    }
+}
@@ -0,0 +1,359 @@
+package com.example.cart_service.service.redis;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.luaj.vm2.Globals;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+import org.luaj.vm2.lib.OneArgFunction;
+import org.luaj.vm2.lib.VarArgFunction;
+import org.luaj.vm2.lib.jse.JsePlatform;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory stand-in for the Redis commands the stock scripts use, so the scripts in {@code resources/scripts}
+ * can be run by luaj without a Redis server. Replies are converted the way Redis converts them for Lua 5.1:
+ * nil becomes {@code false}, integers become numbers, status replies become {@code {ok = ...}} tables. The
+ * script's return value is converted back like Redis does (numbers to {@link Long}, tables to lists).
+ */
+final class LuaRedis {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final Map<String, Object> data = new HashMap<>();
+    private final Map<String, Long> ttlMillis = new HashMap<>();
+
+    Object eval(String script, List<String> keys, String... argv) {
+        Globals globals = JsePlatform.standardGlobals();
+        // Redis chạy Lua 5.1: unpack là hàm toàn cục
+        globals.set("unpack", globals.get("table").get("unpack"));
+        LuaTable redis = new LuaTable();
+        redis.set("call", new VarArgFunction() {
+            @Override
+            public Varargs invoke(Varargs args) {
+                String[] command = new String[args.narg()];
+                for (int i = 0; i < command.length; i++) {
+                    command[i] = args.arg(i + 1).tojstring();
+                }
+                return LuaRedis.this.call(command);
+            }
+        });
+        globals.set("redis", redis);
+        globals.set("cjson", cjson());
+        globals.set("KEYS", strings(keys));
+        globals.set("ARGV", strings(List.of(argv)));
+        return fromLua(globals.load(read(script), script).call());
+    }
+
+    // --- dữ liệu cho test ---
+
+    String get(String key) {
+        return (String) data.get(key);
+    }
+
+    void set(String key, String value) {
+        data.put(key, value);
+    }
+
+    @SuppressWarnings("unchecked")
+    Map<String, String> hash(String key) {
+        return (Map<String, String>) data.computeIfAbsent(key, k -> new LinkedHashMap<String, String>());
+    }
+
+    @SuppressWarnings("unchecked")
+    Map<String, Double> zset(String key) {
+        return (Map<String, Double>) data.computeIfAbsent(key, k -> new HashMap<String, Double>());
+    }
+
+    @SuppressWarnings("unchecked")
+    List<String> list(String key) {
+        return (List<String>) data.computeIfAbsent(key, k -> new ArrayList<String>());
+    }
+
+    boolean exists(String key) {
+        Object value = data.get(key);
+        if (value instanceof Map<?, ?> map) {
+            return !map.isEmpty();
+        }
+        if (value instanceof List<?> list) {
+            return !list.isEmpty();
+        }
+        return value != null;
+    }
+
+    Long ttlMillis(String key) {
+        return ttlMillis.get(key);
+    }
+
+    // --- lệnh Redis ---
+
+    private LuaValue call(String[] c) {
+        String command = c[0].toUpperCase();
+        switch (command) {
+            case "GET":
+                return bulk(get(c[1]));
+            case "SET":
+                data.put(c[1], c[2]);
+                ttlMillis.remove(c[1]);
+                for (int i = 3; i + 1 < c.length; i += 2) {
+                    long amount = Long.parseLong(c[i + 1]);
+                    ttlMillis.put(c[1], "EX".equalsIgnoreCase(c[i]) ? amount * 1000 : amount);
+                }
+                return status("OK");
+            case "DEL": {
+                int removed = 0;
+                for (int i = 1; i < c.length; i++) {
+                    if (exists(c[i])) {
+                        removed++;
+                    }
+                    data.remove(c[i]);
+                    ttlMillis.remove(c[i]);
+                }
+                return LuaValue.valueOf(removed);
+            }
+            case "EXISTS":
+                return LuaValue.valueOf(exists(c[1]) ? 1 : 0);
+            case "INCRBY":
+            case "DECRBY": {
+                long delta = Long.parseLong(c[2]) * ("DECRBY".equals(command) ? -1 : 1);
+                long value = (get(c[1]) == null ? 0 : Long.parseLong(get(c[1]))) + delta;
+                data.put(c[1], Long.toString(value));
+                return LuaValue.valueOf((double) value);
+            }
+            case "EXPIRE":
+            case "PEXPIRE":
+                if (!exists(c[1])) {
+                    return LuaValue.valueOf(0);
+                }
+                ttlMillis.put(c[1], Long.parseLong(c[2]) * ("EXPIRE".equals(command) ? 1000 : 1));
+                return LuaValue.valueOf(1);
+            case "HGET":
+                return bulk(exists(c[1]) ? hash(c[1]).get(c[2]) : null);
+            case "HSET": {
+                int added = 0;
+                for (int i = 2; i + 1 < c.length; i += 2) {
+                    if (hash(c[1]).put(c[i], c[i + 1]) == null) {
+                        added++;
+                    }
+                }
+                return LuaValue.valueOf(added);
+            }
+            case "HDEL": {
+                int removed = 0;
+                for (int i = 2; i < c.length; i++) {
+                    if (exists(c[1]) && hash(c[1]).remove(c[i]) != null) {
+                        removed++;
+                    }
+                }
+                dropIfEmpty(c[1]);
+                return LuaValue.valueOf(removed);
+            }
+            case "HGETALL": {
+                List<String> flat = new ArrayList<>();
+                if (exists(c[1])) {
+                    hash(c[1]).forEach((field, value) -> {
+                        flat.add(field);
+                        flat.add(value);
+                    });
+                }
+                return strings(flat);
+            }
+            case "HMGET": {
+                LuaTable values = new LuaTable();
+                for (int i = 2; i < c.length; i++) {
+                    values.set(i - 1, bulk(exists(c[1]) ? hash(c[1]).get(c[i]) : null));
+                }
+                return values;
+            }
+            case "ZADD": {
+                boolean added = zset(c[1]).put(c[3], Double.parseDouble(c[2])) == null;
+                return LuaValue.valueOf(added ? 1 : 0);
+            }
+            case "ZREM": {
+                int removed = 0;
+                for (int i = 2; i < c.length; i++) {
+                    if (exists(c[1]) && zset(c[1]).remove(c[i]) != null) {
+                        removed++;
+                    }
+                }
+                dropIfEmpty(c[1]);
+                return LuaValue.valueOf(removed);
+            }
+            case "ZRANGE": {
+                List<String> members = exists(c[1])
+                        ? zset(c[1]).entrySet().stream()
+                                .sorted(Map.Entry.<String, Double>comparingByValue().thenComparing(Map.Entry.comparingByKey()))
+                                .map(Map.Entry::getKey)
+                                .toList()
+                        : List.of();
+                return strings(range(members, c[2], c[3]));
+            }
+            case "RPUSH":
+                for (int i = 2; i < c.length; i++) {
+                    list(c[1]).add(c[i]);
+                }
+                return LuaValue.valueOf(list(c[1]).size());
+            case "LRANGE":
+                return strings(range(exists(c[1]) ? list(c[1]) : List.of(), c[2], c[3]));
+            default:
+                throw new LuaError("ERR unknown command '" + c[0] + "'");
+        }
+    }
+
+    private void dropIfEmpty(String key) {
+        if (!exists(key)) {
+            data.remove(key);
+        }
+    }
+
+    private static List<String> range(List<String> values, String start, String stop) {
+        int size = values.size();
+        int from = Integer.parseInt(start);
+        int to = Integer.parseInt(stop);
+        from = Math.max(0, from < 0 ? size + from : from);
+        to = Math.min(size - 1, to < 0 ? size + to : to);
+        return from > to ? List.of() : new ArrayList<>(values.subList(from, to + 1));
+    }
+
+    // --- chuyển đổi kiểu ---
+
+    private static LuaValue bulk(String value) {
+        return value == null ? LuaValue.FALSE : LuaValue.valueOf(value);
+    }
+
+    private static LuaValue status(String value) {
+        LuaTable table = new LuaTable();
+        table.set("ok", value);
+        return table;
+    }
+
+    private static LuaTable strings(List<String> values) {
+        LuaTable table = new LuaTable();
+        for (int i = 0; i < values.size(); i++) {
+            table.set(i + 1, LuaValue.valueOf(values.get(i)));
+        }
+        return table;
+    }
+
+    private static Object fromLua(LuaValue value) {
+        switch (value.type()) {
+            case LuaValue.TNUMBER:
+                return value.tolong();
+            case LuaValue.TSTRING:
+                return value.tojstring();
+            case LuaValue.TTABLE: {
+                List<Object> list = new ArrayList<>();
+                for (int i = 1; i <= value.length(); i++) {
+                    list.add(fromLua(value.get(i)));
+                }
+                return list;
+            }
+            case LuaValue.TBOOLEAN:
+                return value.toboolean() ? 1L : null;
+            default:
+                return null;
+        }
+    }
+
+    private static LuaTable cjson() {
+        LuaTable cjson = new LuaTable();
+        cjson.set("encode", new OneArgFunction() {
+            @Override
+            public LuaValue call(LuaValue value) {
+                try {
+                    return LuaValue.valueOf(JSON.writeValueAsString(toJava(value)));
+                } catch (JsonProcessingException e) {
+                    throw new LuaError(e.getMessage());
+                }
+            }
+        });
+        cjson.set("decode", new OneArgFunction() {
+            @Override
+            public LuaValue call(LuaValue value) {
+                try {
+                    return toLua(JSON.readValue(value.checkjstring(), Object.class));
+                } catch (JsonProcessingException e) {
+                    throw new LuaError("Expected value but found invalid token");
+                }
+            }
+        });
+        return cjson;
+    }
+
+    // Bảng có phần mảng 1..n thành list, còn lại thành object, giống cjson
+    private static Object toJava(LuaValue value) {
+        switch (value.type()) {
+            case LuaValue.TNUMBER:
+                return value.isinttype() ? (Object) value.tolong() : (Object) value.todouble();
+            case LuaValue.TSTRING:
+                return value.tojstring();
+            case LuaValue.TBOOLEAN:
+                return value.toboolean();
+            case LuaValue.TTABLE: {
+                if (value.length() > 0) {
+                    List<Object> list = new ArrayList<>();
+                    for (int i = 1; i <= value.length(); i++) {
+                        list.add(toJava(value.get(i)));
+                    }
+                    return list;
+                }
+                Map<String, Object> map = new LinkedHashMap<>();
+                LuaValue key = LuaValue.NIL;
+                while (true) {
+                    Varargs next = value.next(key);
+                    key = next.arg1();
+                    if (key.isnil()) {
+                        return map;
+                    }
+                    map.put(key.tojstring(), toJava(next.arg(2)));
+                }
+            }
+            default:
+                return null;
+        }
+    }
+
+    private static LuaValue toLua(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            LuaTable table = new LuaTable();
+            map.forEach((k, v) -> table.set(k.toString(), toLua(v)));
+            return table;
+        }
+        if (value instanceof List<?> list) {
+            LuaTable table = new LuaTable();
+            for (int i = 0; i < list.size(); i++) {
+                table.set(i + 1, toLua(list.get(i)));
+            }
+            return table;
+        }
+        if (value instanceof Number number) {
+            return LuaValue.valueOf(number.doubleValue());
+        }
+        if (value instanceof Boolean bool) {
+            return LuaValue.valueOf(bool);
+        }
+        return value == null ? LuaValue.NIL : LuaValue.valueOf(value.toString());
+    }
+
+    private static String read(String script) {
+        try (InputStream in = LuaRedis.class.getClassLoader().getResourceAsStream(script)) {
+            if (in == null) {
+                throw new IllegalArgumentException("No script " + script);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
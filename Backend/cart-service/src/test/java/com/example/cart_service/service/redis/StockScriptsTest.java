@@ -0,0 +1,324 @@
+package com.example.cart_service.service.redis;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.example.cart_service.service.redis.StockReservationService.AVAILABLE_KEY_PREFIX;
+import static com.example.cart_service.service.redis.StockReservationService.HOLD_EXPIRY_KEY;
+import static com.example.cart_service.service.redis.StockReservationService.HOLD_KEY_PREFIX;
+import static com.example.cart_service.service.redis.StockReservationService.RECONCILE_QUEUE_KEY;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the stock Lua scripts against {@link LuaRedis} with the keys and arguments
+ * {@link StockReservationService} and {@link StockLock} pass to them.
+ */
+class StockScriptsTest {
+
+    private static final String HOLD = HOLD_KEY_PREFIX + "42";
+    private static final String LOCK = StockLock.LOCK_KEY;
+
+    private final LuaRedis redis = new LuaRedis();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static String counter(String productId) {
+        return AVAILABLE_KEY_PREFIX + productId;
+    }
+
+    // KEYS: hold, expiry, counter...; ARGV: hold id, expiry, counter prefix, productId/quantity...
+    private Object reserve(long expiresAt, String... pairs) {
+        List<String> keys = new ArrayList<>(List.of(HOLD, HOLD_EXPIRY_KEY));
+        List<String> argv = new ArrayList<>(List.of("42", Long.toString(expiresAt), AVAILABLE_KEY_PREFIX));
+        for (int i = 0; i < pairs.length; i += 2) {
+            keys.add(counter(pairs[i]));
+            argv.add(pairs[i]);
+            argv.add(pairs[i + 1]);
+        }
+        return redis.eval("scripts/stock_reserve.lua", keys, argv.toArray(String[]::new));
+    }
+
+    private Object release() {
+        return redis.eval("scripts/stock_release.lua", List.of(HOLD, HOLD_EXPIRY_KEY), "42", AVAILABLE_KEY_PREFIX);
+    }
+
+    private Object commit(String ref) {
+        return redis.eval("scripts/stock_commit.lua", List.of(HOLD, HOLD_EXPIRY_KEY, RECONCILE_QUEUE_KEY), "42", ref);
+    }
+
+    private Object restock(String ref, String... pairs) {
+        List<String> keys = new ArrayList<>(List.of(RECONCILE_QUEUE_KEY));
+        List<String> argv = new ArrayList<>(List.of(ref));
+        for (int i = 0; i < pairs.length; i += 2) {
+            keys.add(counter(pairs[i]));
+            argv.add(pairs[i]);
+            argv.add(pairs[i + 1]);
+        }
+        return redis.eval("scripts/stock_restock.lua", keys, argv.toArray(String[]::new));
+    }
+
+    private Object resync(boolean onlyMissing, String... pairs) {
+        List<String> keys = new ArrayList<>(List.of(HOLD_EXPIRY_KEY, RECONCILE_QUEUE_KEY));
+        List<String> argv = new ArrayList<>(List.of(HOLD_KEY_PREFIX, "3600", onlyMissing ? "1" : "0"));
+        for (int i = 0; i < pairs.length; i += 2) {
+            keys.add(counter(pairs[i]));
+            argv.add(pairs[i]);
+            argv.add(pairs[i + 1]);
+        }
+        return redis.eval("scripts/stock_resync.lua", keys, argv.toArray(String[]::new));
+    }
+
+    private Map<?, ?> queued(int index) throws Exception {
+        return objectMapper.readValue(redis.list(RECONCILE_QUEUE_KEY).get(index), Map.class);
+    }
+
+    // --- stock_reserve.lua ---
+
+    @Test
+    void reserveReportsAMissingCounterWithoutChangingAnything() {
+        redis.set(counter("p1"), "10");
+
+        assertThat(reserve(1000, "p1", "2", "p2", "1")).isEqualTo("MISSING:p2");
+        assertThat(redis.get(counter("p1"))).isEqualTo("10");
+        assertThat(redis.exists(HOLD)).isFalse();
+    }
+
+    @Test
+    void reserveIsAllOrNothingWhenOneLineIsShort() {
+        redis.set(counter("p1"), "10");
+        redis.set(counter("p2"), "1");
+
+        assertThat(reserve(1000, "p1", "2", "p2", "3")).isEqualTo("SHORT:p2:1");
+        assertThat(redis.get(counter("p1"))).isEqualTo("10");
+        assertThat(redis.get(counter("p2"))).isEqualTo("1");
+        assertThat(redis.exists(HOLD)).isFalse();
+        assertThat(redis.exists(HOLD_EXPIRY_KEY)).isFalse();
+    }
+
+    @Test
+    void reserveTakesTheQuantitiesAndRecordsTheHold() {
+        redis.set(counter("p1"), "10");
+        redis.set(counter("p2"), "3");
+
+        assertThat(reserve(1000, "p1", "2", "p2", "3")).isEqualTo("OK");
+
+        assertThat(redis.get(counter("p1"))).isEqualTo("8");
+        assertThat(redis.get(counter("p2"))).isEqualTo("0");
+        assertThat(redis.hash(HOLD)).containsExactlyInAnyOrderEntriesOf(Map.of("p1", "2", "p2", "3"));
+        assertThat(redis.zset(HOLD_EXPIRY_KEY)).containsEntry("42", 1000.0);
+    }
+
+    @Test
+    void reserveAgainOnlyAppliesTheDifferenceAndGivesBackDroppedLines() {
+        redis.set(counter("p1"), "10");
+        redis.set(counter("p2"), "10");
+        redis.set(counter("p3"), "10");
+        reserve(1000, "p1", "2", "p2", "5", "p3", "1");
+
+        // p1 tăng 2 -> 4, p2 giảm 5 -> 0, p3 bỏ khỏi đơn
+        assertThat(reserve(2000, "p1", "4", "p2", "0")).isEqualTo("OK");
+
+        assertThat(redis.get(counter("p1"))).isEqualTo("6");
+        assertThat(redis.get(counter("p2"))).isEqualTo("10");
+        assertThat(redis.get(counter("p3"))).isEqualTo("10");
+        assertThat(redis.hash(HOLD)).containsExactlyEntriesOf(Map.of("p1", "4"));
+        assertThat(redis.zset(HOLD_EXPIRY_KEY)).containsEntry("42", 2000.0);
+    }
+
+    @Test
+    void reserveAgainChecksOnlyTheIncreaseAgainstAvailableStock() {
+        redis.set(counter("p1"), "5");
+        reserve(1000, "p1", "5");
+
+        // 5 đã giữ, còn 0: tăng lên 6 thiếu, giữ nguyên 5 thì vẫn được
+        assertThat(reserve(1000, "p1", "6")).isEqualTo("SHORT:p1:0");
+        assertThat(reserve(1000, "p1", "5")).isEqualTo("OK");
+        assertThat(redis.get(counter("p1"))).isEqualTo("0");
+        assertThat(redis.hash(HOLD)).containsEntry("p1", "5");
+    }
+
+    @Test
+    void reserveDoesNotRecreateTheCounterOfADroppedLineThatExpired() {
+        redis.set(counter("p1"), "10");
+        redis.set(counter("p2"), "10");
+        reserve(1000, "p1", "1", "p2", "1");
+        redis.eval("scripts/stock_resync.lua", List.of(HOLD_EXPIRY_KEY, RECONCILE_QUEUE_KEY, counter("p2")),
+                HOLD_KEY_PREFIX, "3600", "0", "p2", "");
+
+        assertThat(reserve(1000, "p1", "1")).isEqualTo("OK");
+        assertThat(redis.exists(counter("p2"))).isFalse();
+        assertThat(redis.hash(HOLD)).containsOnlyKeys("p1");
+    }
+
+    // --- stock_release.lua ---
+
+    @Test
+    void releaseGivesTheHeldStockBack() {
+        redis.set(counter("p1"), "10");
+        redis.set(counter("p2"), "10");
+        reserve(1000, "p1", "2", "p2", "3");
+
+        assertThat(release()).isEqualTo(1L);
+
+        assertThat(redis.get(counter("p1"))).isEqualTo("10");
+        assertThat(redis.get(counter("p2"))).isEqualTo("10");
+        assertThat(redis.exists(HOLD)).isFalse();
+        assertThat(redis.exists(HOLD_EXPIRY_KEY)).isFalse();
+    }
+
+    @Test
+    void releaseWithoutAHoldOnlyClearsTheExpiryEntry() {
+        redis.zset(HOLD_EXPIRY_KEY).put("42", 1000.0);
+
+        assertThat(release()).isEqualTo(0L);
+        assertThat(redis.exists(HOLD_EXPIRY_KEY)).isFalse();
+    }
+
+    @Test
+    void releaseSkipsCountersThatExpired() {
+        redis.hash(HOLD).put("p1", "2");
+
+        assertThat(release()).isEqualTo(1L);
+        assertThat(redis.exists(counter("p1"))).isFalse();
+    }
+
+    @Test
+    void releaseTwiceGivesTheStockBackOnce() {
+        redis.set(counter("p1"), "10");
+        reserve(1000, "p1", "4");
+
+        release();
+        assertThat(release()).isEqualTo(0L);
+        assertThat(redis.get(counter("p1"))).isEqualTo("10");
+    }
+
+    // --- stock_commit.lua ---
+
+    @Test
+    void commitQueuesTheSaleAndDropsTheHold() throws Exception {
+        redis.set(counter("p1"), "10");
+        reserve(1000, "p1", "2");
+
+        assertThat(commit("order:42:commit:abc")).isEqualTo(1L);
+
+        assertThat(redis.get(counter("p1"))).isEqualTo("8");
+        assertThat(redis.exists(HOLD)).isFalse();
+        assertThat(redis.exists(HOLD_EXPIRY_KEY)).isFalse();
+        assertThat(redis.list(RECONCILE_QUEUE_KEY)).hasSize(1);
+        assertThat(queued(0)).isEqualTo(Map.of(
+                "ref", "order:42:commit:abc",
+                "items", List.of(Map.of("productId", "p1", "quantity", 2, "operation", -1))));
+    }
+
+    @Test
+    void commitWithoutAHoldQueuesNothing() {
+        assertThat(commit("order:42:commit:abc")).isEqualTo(0L);
+        assertThat(redis.exists(RECONCILE_QUEUE_KEY)).isFalse();
+    }
+
+    @Test
+    void commitAfterReleaseQueuesNothing() {
+        redis.set(counter("p1"), "10");
+        reserve(1000, "p1", "2");
+        release();
+
+        assertThat(commit("order:42:commit:abc")).isEqualTo(0L);
+        assertThat(redis.exists(RECONCILE_QUEUE_KEY)).isFalse();
+        assertThat(redis.get(counter("p1"))).isEqualTo("10");
+    }
+
+    // --- stock_restock.lua ---
+
+    @Test
+    void restockRaisesLiveCountersAndQueuesEveryLine() throws Exception {
+        redis.set(counter("p1"), "5");
+
+        assertThat(restock("order:42:restock:abc", "p1", "2", "p2", "3")).isEqualTo(2L);
+
+        assertThat(redis.get(counter("p1"))).isEqualTo("7");
+        assertThat(redis.exists(counter("p2"))).isFalse();
+        assertThat(queued(0)).isEqualTo(Map.of(
+                "ref", "order:42:restock:abc",
+                "items", List.of(
+                        Map.of("productId", "p1", "quantity", 2, "operation", 1),
+                        Map.of("productId", "p2", "quantity", 3, "operation", 1))));
+    }
+
+    @Test
+    void restockWithoutLinesQueuesNothing() {
+        assertThat(restock("order:42:restock:abc")).isEqualTo(0L);
+        assertThat(redis.exists(RECONCILE_QUEUE_KEY)).isFalse();
+    }
+
+    // --- stock_resync.lua ---
+
+    @Test
+    void resyncSubtractsHoldsAndPendingSalesAndAddsPendingRestocks() {
+        redis.set(counter("p1"), "999");
+        reserve(1000, "p1", "2");
+        redis.hash(HOLD_KEY_PREFIX + "7").put("p1", "1");
+        redis.zset(HOLD_EXPIRY_KEY).put("7", 1000.0);
+        redis.list(RECONCILE_QUEUE_KEY).add(
+                "{\"ref\":\"a\",\"items\":[{\"productId\":\"p1\",\"quantity\":4,\"operation\":-1}]}");
+        redis.list(RECONCILE_QUEUE_KEY).add(
+                "{\"ref\":\"b\",\"items\":[{\"productId\":\"p1\",\"quantity\":1,\"operation\":1},"
+                        + "{\"productId\":\"p9\",\"quantity\":5,\"operation\":-1}]}");
+
+        assertThat(resync(false, "p1", "20")).isEqualTo(1L);
+
+        // 20 - 2 - 1 (giữ) - 4 (đã bán) + 1 (nhập lại)
+        assertThat(redis.get(counter("p1"))).isEqualTo("14");
+        assertThat(redis.ttlMillis(counter("p1"))).isEqualTo(3_600_000L);
+    }
+
+    @Test
+    void resyncIgnoresMalformedQueueEntries() {
+        redis.list(RECONCILE_QUEUE_KEY).add("not json");
+
+        assertThat(resync(false, "p1", "5")).isEqualTo(1L);
+        assertThat(redis.get(counter("p1"))).isEqualTo("5");
+    }
+
+    @Test
+    void resyncOnlyMissingLeavesExistingCountersAlone() {
+        redis.set(counter("p1"), "3");
+
+        assertThat(resync(true, "p1", "20", "p2", "7")).isEqualTo(1L);
+
+        assertThat(redis.get(counter("p1"))).isEqualTo("3");
+        assertThat(redis.get(counter("p2"))).isEqualTo("7");
+    }
+
+    @Test
+    void resyncDeletesTheCounterOfARemovedProduct() {
+        redis.set(counter("p1"), "3");
+
+        assertThat(resync(false, "p1", "")).isEqualTo(0L);
+        assertThat(redis.exists(counter("p1"))).isFalse();
+    }
+
+    // --- stock_lock_renew.lua / stock_lock_release.lua ---
+
+    @Test
+    void onlyTheOwnerCanRenewOrReleaseTheLock() {
+        redis.set(LOCK, "token-a");
+
+        assertThat(redis.eval("scripts/stock_lock_renew.lua", List.of(LOCK), "token-b", "30000")).isEqualTo(0L);
+        assertThat(redis.eval("scripts/stock_lock_release.lua", List.of(LOCK), "token-b")).isEqualTo(0L);
+        assertThat(redis.get(LOCK)).isEqualTo("token-a");
+
+        assertThat(redis.eval("scripts/stock_lock_renew.lua", List.of(LOCK), "token-a", "30000")).isEqualTo(1L);
+        assertThat(redis.ttlMillis(LOCK)).isEqualTo(30_000L);
+        assertThat(redis.eval("scripts/stock_lock_release.lua", List.of(LOCK), "token-a")).isEqualTo(1L);
+        assertThat(redis.exists(LOCK)).isFalse();
+    }
+
+    @Test
+    void anExpiredLockCannotBeRenewed() {
+        assertThat(redis.eval("scripts/stock_lock_renew.lua", List.of(LOCK), "token-a", "30000")).isEqualTo(0L);
+        assertThat(redis.exists(LOCK)).isFalse();
+    }
+}
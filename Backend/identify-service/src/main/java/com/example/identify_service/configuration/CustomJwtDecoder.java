@@ -1,30 +1,113 @@
 package com.example.identify_service.configuration;
 
 import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.oauth2.jwt.BadJwtException;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.JwtException;
 import org.springframework.stereotype.Component;
 
+import com.example.identify_service.service.TokenRevocationService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.crypto.MACVerifier;
+import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
 
+/**
+ * Decodes access tokens issued by {@code AuthenticationService}.
+ * <p>
+ * The HMAC signature is checked with one {@link MACVerifier} built at startup, and the claims are parsed once.
+ * A verified token is cached as a {@link Jwt} until it expires, so repeated requests with the same token skip
+ * parsing and verification. Revocation is still checked on every request, because a cached token may be revoked
+ * by a logout; for tokens that were never revoked that check stays in {@link TokenRevocationService}'s Bloom
+ * filter. Refresh tokens are not accepted as bearer tokens.
+ */
 @Component
 public class CustomJwtDecoder implements JwtDecoder {
+
+    private final JWSVerifier verifier;
+    private final TokenRevocationService tokenRevocationService;
+    private final Cache<String, Jwt> verifiedTokens;
+
+    public CustomJwtDecoder(
+            @Value("${jwt.signerKey}") String signerKey,
+            @Value("${jwt.decoder.cache-size:10000}") long cacheSize,
+            TokenRevocationService tokenRevocationService)
+            throws JOSEException {
+        this.verifier = new MACVerifier(signerKey.getBytes());
+        this.tokenRevocationService = tokenRevocationService;
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfter(new UntilTokenExpiry())
+                .build();
+    }
+
     @Override
     public Jwt decode(String token) throws JwtException {
+        Jwt jwt = verifiedTokens.getIfPresent(token);
+        if (jwt == null) {
+            jwt = verify(token);
+            verifiedTokens.put(token, jwt);
+        }
+
+        if (tokenRevocationService.isRevoked(jwt.getId())) {
+            verifiedTokens.invalidate(token);
+            throw new BadJwtException("Token has been revoked");
+        }
+        return jwt;
+    }
+
+    private Jwt verify(String token) {
+        SignedJWT signedJWT;
+        JWTClaimsSet claims;
         try {
-            SignedJWT signedJWT = SignedJWT.parse(token);
+            signedJWT = SignedJWT.parse(token);
+            if (!signedJWT.verify(verifier)) throw new BadJwtException("Invalid token signature");
+            claims = signedJWT.getJWTClaimsSet();
+        } catch (ParseException | JOSEException e) {
+            throw new BadJwtException("Invalid token", e);
+        }
+
+        Date issueTime = claims.getIssueTime();
+        Date expiryTime = claims.getExpirationTime();
+        if (issueTime == null || expiryTime == null || !expiryTime.after(new Date()))
+            throw new BadJwtException("Token has expired");
+        if ("refresh".equals(claims.getClaim("type"))) throw new BadJwtException("Refresh token used as access token");
+        if (claims.getJWTID() == null) throw new BadJwtException("Token has no id");
+
+        return new Jwt(
+                token,
+                issueTime.toInstant(),
+                expiryTime.toInstant(),
+                signedJWT.getHeader().toJSONObject(),
+                claims.getClaims());
+    }
+
+    // Mỗi token nằm trong cache đến đúng thời điểm hết hạn của nó
+    private static class UntilTokenExpiry implements Expiry<String, Jwt> {
+        @Override
+        public long expireAfterCreate(String token, Jwt jwt, long currentTime) {
+            return Math.max(
+                    0, Duration.between(Instant.now(), jwt.getExpiresAt()).toNanos());
+        }
 
-            return new Jwt(
-                    token,
-                    signedJWT.getJWTClaimsSet().getIssueTime().toInstant(),
-                    signedJWT.getJWTClaimsSet().getExpirationTime().toInstant(),
-                    signedJWT.getHeader().toJSONObject(),
-                    signedJWT.getJWTClaimsSet().getClaims());
+        @Override
+        public long expireAfterUpdate(String token, Jwt jwt, long currentTime, long currentDuration) {
+            return expireAfterCreate(token, jwt, currentTime);
+        }
 
-        } catch (ParseException e) {
-            throw new JwtException("Invalid token");
+        @Override
+        public long expireAfterRead(String token, Jwt jwt, long currentTime, long currentDuration) {
+            return currentDuration;
         }
     }
 }
@@ -2,12 +2,20 @@ package com.example.identify_service.configuration;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.repository.configuration.EnableRedisRepositories;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
+import com.example.identify_service.service.RoleScopeCache;
+import com.example.identify_service.service.TokenRevocationService;
+
 @Configuration
 @EnableRedisRepositories
 public class RedisConfig {
@@ -25,4 +33,39 @@ public class RedisConfig {
         template.afterPropertiesSet();
         return template;
     }
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(
+            RedisConnectionFactory connectionFactory,
+            TokenRevocationService tokenRevocationService,
+            RoleScopeCache roleScopeCache) {
+        // started by RedisListenerStarter so the service also comes up while Redis is down
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer() {
+            @Override
+            public boolean isAutoStartup() {
+                return false;
+            }
+        };
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(tokenRevocationService, new ChannelTopic(TokenRevocationService.REVOKED_CHANNEL));
+        container.addMessageListener(roleScopeCache, new ChannelTopic(RoleScopeCache.CHANGED_CHANNEL));
+        return container;
+    }
+
+    @Bean
+    public RedisScript<Long> refreshIssueScript() {
+        return script("scripts/refresh_issue.lua");
+    }
+
+    @Bean
+    public RedisScript<Long> refreshRotateScript() {
+        return script("scripts/refresh_rotate.lua");
+    }
+
+    private static RedisScript<Long> script(String path) {
+        DefaultRedisScript<Long> script = new DefaultRedisScript<>();
+        script.setLocation(new ClassPathResource(path));
+        script.setResultType(Long.class);
+        return script;
+    }
 }
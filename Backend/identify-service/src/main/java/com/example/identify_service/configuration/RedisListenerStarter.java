@@ -0,0 +1,38 @@
+package com.example.identify_service.configuration;
+
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.identify_service.service.TokenRevocationService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Starts the Redis listener container in the background and keeps retrying until Redis is reachable. The state of
+ * the subscription is passed to {@link TokenRevocationService}, which checks every token against Redis while it is
+ * down instead of trusting a Bloom filter that no longer receives revocations from other instances.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RedisListenerStarter {
+
+    private final RedisMessageListenerContainer redisMessageListenerContainer;
+    private final TokenRevocationService tokenRevocationService;
+
+    @Scheduled(fixedDelayString = "${redis.listener.retry-interval:5000}")
+    public void startListener() {
+        if (!redisMessageListenerContainer.isRunning()) {
+            try {
+                redisMessageListenerContainer.start();
+                log.info("Redis listener started");
+            } catch (Exception e) {
+                log.warn("Redis listener not started, retrying: {}", e.getMessage());
+            }
+        }
+        tokenRevocationService.listenerStateChanged(
+                redisMessageListenerContainer.isRunning() && redisMessageListenerContainer.isListening());
+    }
+}
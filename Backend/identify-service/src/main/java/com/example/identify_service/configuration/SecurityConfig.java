@@ -1,5 +1,9 @@
 package com.example.identify_service.configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -11,8 +15,13 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
 import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
+import org.springframework.security.oauth2.server.resource.web.BearerTokenResolver;
+import org.springframework.security.oauth2.server.resource.web.DefaultBearerTokenResolver;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.access.AccessDeniedHandler;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.http.HttpStatus;
 
 @Configuration
@@ -42,12 +51,27 @@ public class SecurityConfig {
         httpSecurity.oauth2ResourceServer(oauth2 -> oauth2.jwt(jwtConfigurer -> jwtConfigurer
                         .decoder(customJwtDecoder)
                         .jwtAuthenticationConverter(jwtAuthenticationConverter()))
+                .bearerTokenResolver(bearerTokenResolver())
                 .authenticationEntryPoint(new JwtAuthenticationEntryPoint()));
         httpSecurity.csrf(AbstractHttpConfigurer::disable);
 
         return httpSecurity.build();
     }
 
+    // Endpoint public không đọc header Authorization: token hết hạn, đã thu hồi hay refresh token còn sót trong header
+    // sẽ bị decoder từ chối và trả 401 trước khi tới permitAll (ví dụ lúc gọi /auth/refresh hoặc /auth/logout)
+    private static BearerTokenResolver bearerTokenResolver() {
+        List<RequestMatcher> matchers = new ArrayList<>();
+        for (String endpoint : PUBLIC_ENDPOINTS) {
+            matchers.add(AntPathRequestMatcher.antMatcher(HttpMethod.POST, endpoint));
+        }
+        matchers.add(AntPathRequestMatcher.antMatcher(HttpMethod.GET, "/users/stats/**"));
+        RequestMatcher publicEndpoints = new OrRequestMatcher(matchers);
+
+        DefaultBearerTokenResolver defaultResolver = new DefaultBearerTokenResolver();
+        return request -> publicEndpoints.matches(request) ? null : defaultResolver.resolve(request);
+    }
+
     @Bean
     JwtAuthenticationConverter jwtAuthenticationConverter() {
         JwtGrantedAuthoritiesConverter jwtGrantedAuthoritiesConverter = new JwtGrantedAuthoritiesConverter();
@@ -59,8 +83,9 @@ public class SecurityConfig {
         return jwtAuthenticationConverter;
     }
 
+    // Tăng cost thì hash cũ được băm lại ở lần đăng nhập kế tiếp (xem AuthenticationService.authenticate)
     @Bean
-    PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder(10);
+    PasswordEncoder passwordEncoder(@Value("${security.password.bcrypt-strength:10}") int strength) {
+        return new BCryptPasswordEncoder(strength);
     }
 }
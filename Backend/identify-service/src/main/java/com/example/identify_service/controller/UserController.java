@@ -4,6 +4,8 @@ import java.util.List;
 
 import jakarta.validation.Valid;
 
+import org.springframework.data.domain.Page;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.bind.annotation.CrossOrigin;
 
@@ -18,13 +20,15 @@ import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
 
-@CrossOrigin("http://localhost:5173")
+@CrossOrigin(origins = "http://localhost:5173", exposedHeaders = UserController.TOTAL_COUNT_HEADER)
 @RestController
 @RequestMapping("/users")
 @RequiredArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 @Slf4j
 public class UserController {
+    static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+
     UserService userService;
 
     @PostMapping
@@ -34,14 +38,18 @@ public class UserController {
                 .build();
     }
 
+    // Tổng số user khớp điều kiện nằm ở header X-Total-Count
     @GetMapping
-    ApiResponse<List<UserResponse>> getUsers(
+    ResponseEntity<ApiResponse<List<UserResponse>>> getUsers(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(required = false) String username) {
-        return ApiResponse.<List<UserResponse>>builder()
-                .result(userService.getUsers(page, size, username))
-                .build();
+        Page<UserResponse> users = userService.getUsers(page, size, username);
+        return ResponseEntity.ok()
+                .header(TOTAL_COUNT_HEADER, String.valueOf(users.getTotalElements()))
+                .body(ApiResponse.<List<UserResponse>>builder()
+                        .result(users.getContent())
+                        .build());
     }
 
     @GetMapping("/{userId}")
@@ -14,6 +14,8 @@ import lombok.experimental.FieldDefaults;
 @AllArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE)
 @Entity
+// username LIKE 'abc%' dùng được index này (collation mặc định của MySQL không phân biệt hoa thường)
+@Table(indexes = @Index(name = "idx_user_username", columnList = "username"))
 public class User {
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
@@ -1,9 +1,22 @@
 package com.example.identify_service.repository;
 
+import java.util.Date;
+import java.util.List;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.example.identify_service.entity.InvalidatedToken;
 
 @Repository
-public interface InvalidatedTokenRepository extends JpaRepository<InvalidatedToken, String> {}
+public interface InvalidatedTokenRepository extends JpaRepository<InvalidatedToken, String> {
+
+    List<InvalidatedToken> findByExpiryTimeAfter(Date time);
+
+    @Modifying
+    @Query("DELETE FROM InvalidatedToken t WHERE t.expiryTime < :now")
+    int deleteExpired(@Param("now") Date now);
+}
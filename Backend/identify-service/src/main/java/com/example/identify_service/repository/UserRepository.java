@@ -1,10 +1,18 @@
 package com.example.identify_service.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.example.identify_service.entity.User;
 
@@ -14,5 +22,20 @@ public interface UserRepository extends JpaRepository<User, String> {
 
     Optional<User> findByUsername(String username);
 
-    List<User> findByUsernameContainingIgnoreCase(String username);
+    // Dùng khi cấp token: lấy user và role trong một câu truy vấn, scope của role lấy từ RoleScopeCache
+    @Query("SELECT u FROM User u LEFT JOIN FETCH u.roles WHERE u.username = :username")
+    Optional<User> findWithRolesByUsername(@Param("username") String username);
+
+    Page<User> findByUsernameStartingWith(String username, Pageable pageable);
+
+    // Nạp role và permission cho một trang user; không fetch trong câu phân trang để LIMIT vẫn chạy trên database
+    @EntityGraph(attributePaths = {"roles", "roles.permissions"})
+    List<User> findWithRolesByIdIn(Collection<String> ids);
+
+    // Chỉ thay khi mật khẩu chưa bị đổi trong lúc băm lại
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.password = :newPassword WHERE u.id = :id AND u.password = :oldPassword")
+    int replacePassword(
+            @Param("id") String id, @Param("oldPassword") String oldPassword, @Param("newPassword") String newPassword);
 }
@@ -4,15 +4,10 @@ import java.text.ParseException;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.Date;
-import java.util.StringJoiner;
 import java.util.UUID;
 
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.util.CollectionUtils;
 
 import com.example.identify_service.dto.request.AuthenticationRequest;
 import com.example.identify_service.dto.request.IntrospectRequest;
@@ -20,11 +15,9 @@ import com.example.identify_service.dto.request.LogoutRequest;
 import com.example.identify_service.dto.request.RefreshRequest;
 import com.example.identify_service.dto.response.AuthenticationResponse;
 import com.example.identify_service.dto.response.IntrospectResponse;
-import com.example.identify_service.entity.InvalidatedToken;
 import com.example.identify_service.entity.User;
 import com.example.identify_service.exception.AppException;
 import com.example.identify_service.exception.ErrorCode;
-import com.example.identify_service.repository.InvalidatedTokenRepository;
 import com.example.identify_service.repository.UserRepository;
 import com.nimbusds.jose.*;
 import com.nimbusds.jose.crypto.MACSigner;
@@ -44,8 +37,10 @@ import lombok.extern.slf4j.Slf4j;
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class AuthenticationService {
     UserRepository userRepository;
-    InvalidatedTokenRepository invalidatedTokenRepository;
-    RedisTemplate<String, Object> redisTemplate;
+    TokenRevocationService tokenRevocationService;
+    PasswordHashingService passwordHashingService;
+    RoleScopeCache roleScopeCache;
+    RefreshTokenStore refreshTokenStore;
 
     @NonFinal
     @Value("${jwt.signerKey}")
@@ -73,26 +68,33 @@ public class AuthenticationService {
     }
 
     public AuthenticationResponse authenticate(AuthenticationRequest request) {
-        PasswordEncoder passwordEncoder = new BCryptPasswordEncoder(10);
         var user = userRepository
-                .findByUsername(request.getUsername())
+                .findWithRolesByUsername(request.getUsername())
                 .orElseThrow(() -> new AppException(ErrorCode.USER_NOT_EXISTED));
 
-        boolean authenticated = passwordEncoder.matches(request.getPassword(), user.getPassword());
+        boolean authenticated = passwordHashingService.matches(request.getPassword(), user.getPassword());
 
         if (!authenticated) throw new AppException(ErrorCode.UNAUTHENTICATED);
 
+        // Hash cũ có cost thấp hơn cấu hình hiện tại: băm lại ở nền, không làm chậm lần đăng nhập này
+        if (passwordHashingService.upgradeEncoding(user.getPassword())) {
+            String userId = user.getId();
+            String oldPassword = user.getPassword();
+            passwordHashingService.rehash(
+                    request.getPassword(),
+                    newPassword -> userRepository.replacePassword(userId, oldPassword, newPassword));
+        }
+
+        // Mỗi lần đăng nhập (mỗi thiết bị) mở một family refresh token riêng
+        String familyId = UUID.randomUUID().toString();
+
         // Tạo access token
-        var accessToken = generateToken(user);
+        var accessToken = generateAccessToken(user, familyId);
 
         // Tạo refresh token
-        var refreshToken = generateRefreshToken(user);
+        var refreshToken = generateRefreshToken(user, familyId);
 
-        // Lưu refresh token vào Redis với TTL
-        String redisKey = "refresh_token:" + user.getId();
-        redisTemplate
-                .opsForValue()
-                .set(redisKey, refreshToken.tokenId, java.time.Duration.ofSeconds(refreshableDuration));
+        refreshTokenStore.issue(user.getId(), familyId, refreshToken.tokenId, refreshToken.expiryDate);
 
         return AuthenticationResponse.builder()
                 .token(accessToken.token)
@@ -107,52 +109,37 @@ public class AuthenticationService {
         String jit = signToken.getJWTClaimsSet().getJWTID();
         Date expiryTime = signToken.getJWTClaimsSet().getExpirationTime();
 
-        // Lấy userId từ token để xóa refresh token khỏi Redis
+        // Thu hồi family refresh token của thiết bị này; token cũ chưa có fid thì thu hồi tất cả
         String userId = (String) signToken.getJWTClaimsSet().getClaim("userId");
-        String redisKey = "refresh_token:" + userId;
-        redisTemplate.delete(redisKey);
+        String familyId = (String) signToken.getJWTClaimsSet().getClaim("fid");
+        if (familyId != null) refreshTokenStore.revokeFamily(userId, familyId);
+        else refreshTokenStore.revokeAll(userId);
 
         // Thêm token vào blacklist
-        InvalidatedToken invalidatedToken =
-                InvalidatedToken.builder().id(jit).expiryTime(expiryTime).build();
-        invalidatedTokenRepository.save(invalidatedToken);
+        tokenRevocationService.revoke(jit, expiryTime);
     }
 
     public AuthenticationResponse refreshToken(RefreshRequest request) throws ParseException, JOSEException {
-        var signedJWT = verifyToken(request.getToken());
-        var jwtId = signedJWT.getJWTClaimsSet().getJWTID();
+        var claims = verifyRefreshToken(request.getToken());
 
-        // Lấy userId từ refresh token
-        String userId = (String) signedJWT.getJWTClaimsSet().getClaim("userId");
-        String redisKey = "refresh_token:" + userId;
+        String userId = (String) claims.getClaim("userId");
+        String familyId = (String) claims.getClaim("fid");
+        if (familyId == null) throw new AppException(ErrorCode.UNAUTHENTICATED);
 
-        // Kiểm tra refresh token có tồn tại trong Redis không
-        String storedTokenId = (String) redisTemplate.opsForValue().get(redisKey);
-        if (storedTokenId == null || !storedTokenId.equals(jwtId)) {
-            throw new AppException(ErrorCode.UNAUTHENTICATED);
-        }
-
-        // Xóa refresh token cũ khỏi Redis
-        redisTemplate.delete(redisKey);
-
-        // Thêm refresh token cũ vào blacklist
-        var expiryTime = signedJWT.getJWTClaimsSet().getExpirationTime();
-        InvalidatedToken invalidatedToken =
-                InvalidatedToken.builder().id(jwtId).expiryTime(expiryTime).build();
-        invalidatedTokenRepository.save(invalidatedToken);
-
-        var username = signedJWT.getJWTClaimsSet().getSubject();
-        var user =
-                userRepository.findByUsername(username).orElseThrow(() -> new AppException(ErrorCode.UNAUTHENTICATED));
+        var user = userRepository
+                .findWithRolesByUsername(claims.getSubject())
+                .orElseThrow(() -> new AppException(ErrorCode.UNAUTHENTICATED));
 
-        // Tạo access token và refresh token mới
-        var accessToken = generateToken(user);
-        var refreshToken = generateRefreshToken(user);
+        // Tạo access token và refresh token mới trong cùng family
+        var accessToken = generateAccessToken(user, familyId);
+        var refreshToken = generateRefreshToken(user, familyId);
 
-        // Lưu refresh token mới vào Redis
-        redisTemplate
-                .opsForValue()
-                .set(redisKey, refreshToken.tokenId, java.time.Duration.ofSeconds(refreshableDuration));
+        // Đổi token hiện tại của family sang token mới; token cũ không dùng lại được
+        var rotation = refreshTokenStore.rotate(
+                userId, familyId, claims.getJWTID(), refreshToken.tokenId, refreshToken.expiryDate);
+        if (rotation == RefreshTokenStore.Rotation.REUSED)
+            log.warn("Refresh token reused for user {}, family {} revoked", userId, familyId);
+        if (rotation != RefreshTokenStore.Rotation.ROTATED) throw new AppException(ErrorCode.UNAUTHENTICATED);
 
         return AuthenticationResponse.builder()
                 .token(accessToken.token)
@@ -162,11 +149,7 @@ public class AuthenticationService {
                 .build();
     }
 
-    private TokenInfo generateToken(User user) {
-        return generateAccessToken(user);
-    }
-
-    private TokenInfo generateAccessToken(User user) {
+    private TokenInfo generateAccessToken(User user, String familyId) {
         JWSHeader header = new JWSHeader(JWSAlgorithm.HS512);
 
         Date issueTime = new Date();
@@ -182,13 +165,14 @@ public class AuthenticationService {
                 .jwtID(UUID.randomUUID().toString())
                 .claim("scope", buildScope(user))
                 .claim("userId", user.getId())
+                .claim("fid", familyId)
                 .claim("type", "access")
                 .build();
 
         return createToken(header, jwtClaimsSet, expiryTime);
     }
 
-    private TokenInfo generateRefreshToken(User user) {
+    private TokenInfo generateRefreshToken(User user, String familyId) {
         JWSHeader header = new JWSHeader(JWSAlgorithm.HS512);
 
         Date issueTime = new Date();
@@ -204,6 +188,7 @@ public class AuthenticationService {
                 .expirationTime(expiryTime)
                 .jwtID(tokenId)
                 .claim("userId", user.getId())
+                .claim("fid", familyId)
                 .claim("type", "refresh")
                 .build();
 
@@ -234,23 +219,29 @@ public class AuthenticationService {
 
         if (!(verified && expiryTime.after(new Date()))) throw new AppException(ErrorCode.UNAUTHENTICATED);
 
-        if (invalidatedTokenRepository.existsById(signedJWT.getJWTClaimsSet().getJWTID()))
+        if (tokenRevocationService.isRevoked(signedJWT.getJWTClaimsSet().getJWTID()))
             throw new AppException(ErrorCode.UNAUTHENTICATED);
 
         return signedJWT;
     }
 
-    private String buildScope(User user) {
-        StringJoiner stringJoiner = new StringJoiner(" ");
+    // Refresh token không tra blacklist: family trong Redis quyết định token còn dùng được hay không
+    private JWTClaimsSet verifyRefreshToken(String token) throws JOSEException, ParseException {
+        SignedJWT signedJWT = SignedJWT.parse(token);
+        JWTClaimsSet claims = signedJWT.getJWTClaimsSet();
 
-        if (!CollectionUtils.isEmpty(user.getRoles()))
-            user.getRoles().forEach(role -> {
-                stringJoiner.add("ROLE_" + role.getName());
-                if (!CollectionUtils.isEmpty(role.getPermissions()))
-                    role.getPermissions().forEach(permission -> stringJoiner.add(permission.getName()));
-            });
+        var verified = signedJWT.verify(new MACVerifier(signerKey.getBytes()));
 
-        return stringJoiner.toString();
+        if (!(verified
+                && claims.getExpirationTime() != null
+                && claims.getExpirationTime().after(new Date())
+                && "refresh".equals(claims.getClaim("type")))) throw new AppException(ErrorCode.UNAUTHENTICATED);
+
+        return claims;
+    }
+
+    private String buildScope(User user) {
+        return roleScopeCache.scopeOf(user.getRoles());
     }
 
     private record TokenInfo(String token, Date expiryDate, String tokenId) {
@@ -22,10 +22,12 @@ import lombok.extern.slf4j.Slf4j;
 public class PermissionService {
     PermissionRepository permissionRepository;
     PermissionMapper permissionMapper;
+    RoleScopeCache roleScopeCache;
 
     public PermissionResponse create(PermissionRequest request) {
         Permission permission = permissionMapper.toPermission(request);
         permission = permissionRepository.save(permission);
+        roleScopeCache.invalidate();
         return permissionMapper.toPermissionResponse(permission);
     }
 
@@ -36,5 +38,6 @@ public class PermissionService {
 
     public void delete(String permission) {
         permissionRepository.deleteById(permission);
+        roleScopeCache.invalidate();
     }
 }
@@ -0,0 +1,93 @@
+package com.example.identify_service.service;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+/**
+ * Refresh-token families in Redis.
+ * <p>
+ * Every login starts a family, so each device of a user has its own. A user's families live in one hash,
+ * {@code refresh_tokens:<userId>}, that maps the family id to {@code <current jti>:<expiry epoch seconds>}.
+ * Refreshing rotates the family to a new token in one Lua call (see {@code scripts/refresh_rotate.lua}).
+ * Presenting a token that has already been rotated away means it was copied, so the whole family is revoked
+ * and that device has to log in again. Nothing is written to MySQL on refresh.
+ */
+@Service
+public class RefreshTokenStore {
+
+    public enum Rotation {
+        ROTATED,
+        UNKNOWN_FAMILY,
+        REUSED
+    }
+
+    private static final String KEY_PREFIX = "refresh_tokens:";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisScript<Long> refreshIssueScript;
+    private final RedisScript<Long> refreshRotateScript;
+    private final long refreshableDuration;
+    private final int maxFamilies;
+
+    public RefreshTokenStore(
+            StringRedisTemplate stringRedisTemplate,
+            @Qualifier("refreshIssueScript") RedisScript<Long> refreshIssueScript,
+            @Qualifier("refreshRotateScript") RedisScript<Long> refreshRotateScript,
+            @Value("${jwt.refreshable-duration:604800}") long refreshableDuration,
+            @Value("${jwt.refresh.max-families:10}") int maxFamilies) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.refreshIssueScript = refreshIssueScript;
+        this.refreshRotateScript = refreshRotateScript;
+        this.refreshableDuration = refreshableDuration;
+        this.maxFamilies = maxFamilies;
+    }
+
+    public void issue(String userId, String familyId, String tokenId, Date expiryTime) {
+        stringRedisTemplate.execute(
+                refreshIssueScript,
+                List.of(key(userId)),
+                familyId,
+                tokenId,
+                String.valueOf(toEpochSeconds(expiryTime)),
+                String.valueOf(toEpochSeconds(new Date())),
+                String.valueOf(refreshableDuration),
+                String.valueOf(maxFamilies));
+    }
+
+    public Rotation rotate(String userId, String familyId, String tokenId, String newTokenId, Date newExpiryTime) {
+        Long result = stringRedisTemplate.execute(
+                refreshRotateScript,
+                List.of(key(userId)),
+                familyId,
+                tokenId,
+                newTokenId,
+                String.valueOf(toEpochSeconds(newExpiryTime)),
+                String.valueOf(refreshableDuration));
+
+        if (result == null || result == 0) return Rotation.UNKNOWN_FAMILY;
+        return result > 0 ? Rotation.ROTATED : Rotation.REUSED;
+    }
+
+    public void revokeFamily(String userId, String familyId) {
+        stringRedisTemplate.opsForHash().delete(key(userId), familyId);
+    }
+
+    public void revokeAll(String userId) {
+        stringRedisTemplate.delete(key(userId));
+    }
+
+    private static String key(String userId) {
+        return KEY_PREFIX + userId;
+    }
+
+    private static long toEpochSeconds(Date date) {
+        return TimeUnit.MILLISECONDS.toSeconds(date.getTime());
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.identify_service.service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.util.CollectionUtils;
+
+import com.example.identify_service.entity.Role;
+import com.example.identify_service.repository.RoleRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The {@code scope} claim fragment of every role ({@code ROLE_<name>} followed by its permission names).
+ * <p>
+ * Roles and permissions rarely change, so all fragments are loaded with one fetch-joined query on first use and
+ * kept until {@link RoleService} or {@link PermissionService} writes. A write clears the local copy and is
+ * published on the {@code role:changed} channel so the other instances clear theirs too. Token issuance then
+ * only needs the user's role names. The copy is also reloaded once it is older than
+ * {@code jwt.role-scope.ttl}, in case a change message was missed (e.g. while Redis was down).
+ */
+@Service
+@Slf4j
+public class RoleScopeCache implements MessageListener {
+
+    public static final String CHANGED_CHANNEL = "role:changed";
+
+    private final RoleRepository roleRepository;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final long ttlNanos;
+
+    // tăng mỗi lần xóa cache, để bản đang nạp dở không ghi đè lên lần xóa mới hơn
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot snapshot;
+
+    public RoleScopeCache(
+            RoleRepository roleRepository,
+            StringRedisTemplate stringRedisTemplate,
+            @Value("${jwt.role-scope.ttl:5m}") Duration ttl) {
+        this.roleRepository = roleRepository;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    public String scopeOf(Collection<Role> roles) {
+        StringJoiner stringJoiner = new StringJoiner(" ");
+        if (CollectionUtils.isEmpty(roles)) return stringJoiner.toString();
+
+        Map<String, String> scopes = scopes();
+        roles.forEach(role -> {
+            String scope = scopes.get(role.getName());
+            // role tạo sau lần nạp cuối mà chưa nhận được thông báo: dựng trực tiếp từ entity
+            stringJoiner.add(scope != null ? scope : buildScope(role));
+        });
+        return stringJoiner.toString();
+    }
+
+    /** Clears the cached fragments here and on every other instance. */
+    public void invalidate() {
+        invalidateLocal();
+        try {
+            stringRedisTemplate.convertAndSend(CHANGED_CHANNEL, "*");
+        } catch (Exception e) {
+            log.warn("Could not publish role change, other instances keep their scopes: {}", e.getMessage());
+        }
+    }
+
+    // Nhận thay đổi role/permission từ instance khác
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        invalidateLocal();
+    }
+
+    private void invalidateLocal() {
+        version.incrementAndGet();
+        snapshot = null;
+    }
+
+    private Map<String, String> scopes() {
+        Snapshot current = snapshot;
+        long loadingVersion = version.get();
+        if (current != null && current.version == loadingVersion && System.nanoTime() - current.loadedAt < ttlNanos) {
+            return current.scopes;
+        }
+
+        Map<String, String> scopes = new HashMap<>();
+        for (Role role : roleRepository.findAllWithPermissions()) {
+            scopes.put(role.getName(), buildScope(role));
+        }
+
+        if (version.get() == loadingVersion) {
+            snapshot = new Snapshot(loadingVersion, Map.copyOf(scopes), System.nanoTime());
+        }
+        return scopes;
+    }
+
+    private static String buildScope(Role role) {
+        StringJoiner stringJoiner = new StringJoiner(" ");
+        stringJoiner.add("ROLE_" + role.getName());
+        if (!CollectionUtils.isEmpty(role.getPermissions()))
+            role.getPermissions().forEach(permission -> stringJoiner.add(permission.getName()));
+        return stringJoiner.toString();
+    }
+
+    private record Snapshot(long version, Map<String, String> scopes, long loadedAt) {}
+}
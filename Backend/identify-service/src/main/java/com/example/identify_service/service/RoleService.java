@@ -24,6 +24,7 @@ public class RoleService {
     RoleRepository roleRepository;
     PermissionRepository permissionRepository;
     RoleMapper roleMapper;
+    RoleScopeCache roleScopeCache;
 
     public RoleResponse create(RoleRequest request) {
         var role = roleMapper.toRole(request);
@@ -32,6 +33,7 @@ public class RoleService {
         role.setPermissions(new HashSet<>(permissions));
 
         role = roleRepository.save(role);
+        roleScopeCache.invalidate();
         return roleMapper.toRoleResponse(role);
     }
 
@@ -41,5 +43,6 @@ public class RoleService {
 
     public void delete(String role) {
         roleRepository.deleteById(role);
+        roleScopeCache.invalidate();
     }
 }
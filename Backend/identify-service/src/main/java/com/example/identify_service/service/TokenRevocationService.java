@@ -0,0 +1,207 @@
+package com.example.identify_service.service;
+
+import java.util.Date;
+import java.util.Set;
+
+import jakarta.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.identify_service.entity.InvalidatedToken;
+import com.example.identify_service.repository.InvalidatedTokenRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Revoked token ids (jti).
+ * <p>
+ * The source of truth is the sorted set {@code token:revoked} in Redis, scored by the token's expiry in epoch
+ * millis, so an entry stops counting once the token could not be used anyway. Every revocation is published
+ * on the {@code token:revoked} channel as {@code <jti>:<expiryMillis>}. Each instance keeps a Bloom filter
+ * of the set, fed by that channel and rebuilt periodically, so a token that was never revoked is accepted
+ * without leaving the process; only filter hits go to Redis (or to {@code invalidated_token} when Redis is
+ * unavailable). While the channel listener is not running the filter would miss revocations made on other
+ * instances, so every check goes to Redis until {@link #listenerStateChanged(boolean)} reports it back up.
+ * The table is written first and keeps a durable copy: a revocation whose Redis write fails still commits, and
+ * the next filter rebuild (on startup, when the listener comes back, or on schedule) copies the table back into
+ * Redis and publishes the ids Redis was missing. Expired rows are purged on a schedule.
+ */
+@Service
+@Slf4j
+public class TokenRevocationService implements MessageListener {
+
+    public static final String REVOKED_KEY = "token:revoked";
+    public static final String REVOKED_CHANNEL = "token:revoked";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final InvalidatedTokenRepository invalidatedTokenRepository;
+    private final int expectedInsertions;
+    private final double falsePositiveProbability;
+
+    private volatile BloomFilter filter;
+    private volatile BloomFilter nextFilter;
+    private volatile boolean listening;
+    // true khi Redis có thể thiếu các dòng trong bảng; ban đầu true để lần rebuild đầu tiên chép lại bảng
+    private volatile boolean redisBehind = true;
+
+    public TokenRevocationService(
+            StringRedisTemplate stringRedisTemplate,
+            InvalidatedTokenRepository invalidatedTokenRepository,
+            @Value("${jwt.revocation.bloom-expected-insertions:100000}") int expectedInsertions,
+            @Value("${jwt.revocation.bloom-fpp:0.01}") double falsePositiveProbability) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.invalidatedTokenRepository = invalidatedTokenRepository;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveProbability = falsePositiveProbability;
+    }
+
+    @PostConstruct
+    void init() {
+        try {
+            rebuildFilter();
+        } catch (Exception e) {
+            log.warn("Could not load revoked tokens, checks go to Redis until the next rebuild: {}", e.getMessage());
+        }
+    }
+
+    @Transactional
+    public void revoke(String jwtId, Date expiryTime) {
+        invalidatedTokenRepository.save(
+                InvalidatedToken.builder().id(jwtId).expiryTime(expiryTime).build());
+        addToFilters(jwtId);
+
+        long expiryMillis = expiryTime.getTime();
+        try {
+            stringRedisTemplate.opsForZSet().add(REVOKED_KEY, jwtId, expiryMillis);
+            stringRedisTemplate.convertAndSend(REVOKED_CHANNEL, jwtId + ":" + expiryMillis);
+        } catch (Exception e) {
+            // dòng trong bảng vẫn được commit, lần rebuild sau chép lại vào Redis
+            redisBehind = true;
+            log.warn(
+                    "Could not write revocation of {} to Redis, it is copied on the next rebuild: {}",
+                    jwtId,
+                    e.getMessage());
+        }
+    }
+
+    public boolean isRevoked(String jwtId) {
+        BloomFilter current = filter;
+        if (listening && current != null && !current.mightContain(jwtId)) {
+            return false;
+        }
+        try {
+            Double expiry = stringRedisTemplate.opsForZSet().score(REVOKED_KEY, jwtId);
+            return expiry != null && expiry > System.currentTimeMillis();
+        } catch (Exception e) {
+            log.warn("Redis unavailable for revocation check, falling back to database: {}", e.getMessage());
+            return invalidatedTokenRepository.existsById(jwtId);
+        }
+    }
+
+    /**
+     * Called by {@code RedisListenerStarter} with the state of the channel subscription. When it comes back up
+     * the filter is rebuilt so revocations published while it was down are not missed.
+     */
+    public void listenerStateChanged(boolean listening) {
+        if (listening == this.listening) {
+            return;
+        }
+        if (listening) {
+            try {
+                rebuildFilter();
+            } catch (Exception e) {
+                log.warn("Could not rebuild revocation filter, checks keep going to Redis: {}", e.getMessage());
+                return;
+            }
+        }
+        this.listening = listening;
+        log.info(
+                "Revocation listener {}, Bloom filter {}",
+                listening ? "up" : "down",
+                listening ? "in use" : "bypassed");
+    }
+
+    // Nhận jti bị thu hồi từ instance khác
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody());
+        int separator = body.lastIndexOf(':');
+        addToFilters(separator > 0 ? body.substring(0, separator) : body);
+    }
+
+    /**
+     * Rebuilds the filter from the live entries of the Redis set so expired ids stop adding false
+     * positives. Revocations received while the snapshot is read go into both filters. When a Redis
+     * write failed since the last rebuild, the table is copied into Redis first.
+     */
+    @Scheduled(
+            initialDelayString = "${jwt.revocation.bloom-rebuild-interval:600000}",
+            fixedDelayString = "${jwt.revocation.bloom-rebuild-interval:600000}")
+    public void rebuildFilter() {
+        if (redisBehind) {
+            copyTableToRedis();
+        }
+        BloomFilter rebuilt = new BloomFilter(expectedInsertions, falsePositiveProbability);
+        nextFilter = rebuilt;
+        try {
+            Set<String> live = stringRedisTemplate
+                    .opsForZSet()
+                    .rangeByScore(REVOKED_KEY, System.currentTimeMillis(), Double.POSITIVE_INFINITY);
+            if (live != null) {
+                live.forEach(rebuilt::put);
+            }
+            filter = rebuilt;
+            log.debug("Revocation filter rebuilt with {} ids", live == null ? 0 : live.size());
+        } finally {
+            nextFilter = null;
+        }
+    }
+
+    @Scheduled(cron = "${jwt.revocation.purge-cron:0 0 * * * *}")
+    @Transactional
+    public void purgeExpired() {
+        Date now = new Date();
+        int rows = invalidatedTokenRepository.deleteExpired(now);
+        Long entries = stringRedisTemplate.opsForZSet().removeRangeByScore(REVOKED_KEY, 0, now.getTime());
+        log.info("Purged {} expired invalidated tokens ({} Redis entries)", rows, entries);
+    }
+
+    // ZADD idempotent; chỉ publish các jti Redis chưa có, để instance khác cũng nhận được
+    private void copyTableToRedis() {
+        redisBehind = false;
+        try {
+            int copied = 0;
+            for (InvalidatedToken token : invalidatedTokenRepository.findByExpiryTimeAfter(new Date())) {
+                long expiryMillis = token.getExpiryTime().getTime();
+                if (Boolean.TRUE.equals(
+                        stringRedisTemplate.opsForZSet().add(REVOKED_KEY, token.getId(), expiryMillis))) {
+                    stringRedisTemplate.convertAndSend(REVOKED_CHANNEL, token.getId() + ":" + expiryMillis);
+                    copied++;
+                }
+            }
+            if (copied > 0) {
+                log.info("Copied {} revoked tokens missing from Redis", copied);
+            }
+        } catch (RuntimeException e) {
+            redisBehind = true;
+            throw e;
+        }
+    }
+
+    private void addToFilters(String jwtId) {
+        BloomFilter current = filter;
+        if (current != null) {
+            current.put(jwtId);
+        }
+        BloomFilter next = nextFilter;
+        if (next != null) {
+            next.put(jwtId);
+        }
+    }
+}
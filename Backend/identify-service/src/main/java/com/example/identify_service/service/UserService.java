@@ -1,12 +1,19 @@
 package com.example.identify_service.service;
 
 import java.util.HashSet;
-import java.util.List;
-
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.example.identify_service.constant.PredefinedRole;
 import com.example.identify_service.dto.request.UserCreationRequest;
@@ -30,6 +37,8 @@ import lombok.extern.slf4j.Slf4j;
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 @Slf4j
 public class UserService {
+    private static final int MAX_PAGE_SIZE = 100;
+
     UserRepository userRepository;
     RoleRepository roleRepository;
     UserMapper userMapper;
@@ -77,28 +86,32 @@ public class UserService {
         userRepository.deleteById(userId);
     }
 
+    /**
+     * One page of users ordered by username, optionally limited to usernames starting with {@code username}.
+     * The page is cut by the database; roles and permissions of the page are then loaded with one more query.
+     */
     @PreAuthorize("hasRole('ADMIN')")
-    public List<UserResponse> getUsers(int page, int size, String username) {
+    @Transactional(readOnly = true)
+    public Page<UserResponse> getUsers(int page, int size, String username) {
         log.info("In method get Users with page: {}, size: {}, username: {}", page, size, username);
 
-        List<User> users;
+        Pageable pageable =
+                PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), MAX_PAGE_SIZE), Sort.by("username"));
+
+        Page<User> users;
         if (username != null && !username.trim().isEmpty()) {
-            users = userRepository.findByUsernameContainingIgnoreCase(username);
+            users = userRepository.findByUsernameStartingWith(username.trim(), pageable);
         } else {
-            users = userRepository.findAll();
+            users = userRepository.findAll(pageable);
         }
+        if (users.isEmpty()) return users.map(userMapper::toUserResponse);
 
-        // Phân trang thủ công (có thể dùng Pageable cho phức tạp hơn)
-        int start = page * size;
-        int end = Math.min(start + size, users.size());
-
-        if (start >= users.size()) {
-            return List.of();
-        }
+        Map<String, User> withRoles = userRepository
+                .findWithRolesByIdIn(users.map(User::getId).toList())
+                .stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
 
-        return users.subList(start, end).stream()
-                .map(userMapper::toUserResponse)
-                .toList();
+        return users.map(user -> userMapper.toUserResponse(withRoles.getOrDefault(user.getId(), user)));
     }
 
     @PreAuthorize("hasRole('ADMIN')")
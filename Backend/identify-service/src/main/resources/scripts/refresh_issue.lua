@@ -0,0 +1,28 @@
+-- Start a refresh-token family (one per login, i.e. per device) and drop the user's expired families.
+-- KEYS[1] = the user's family hash, field = family id, value = "<current jti>:<expiry epoch seconds>"
+-- ARGV[1] = family id, ARGV[2] = jti, ARGV[3] = expiry (epoch seconds), ARGV[4] = now (epoch seconds),
+-- ARGV[5] = key TTL in seconds, ARGV[6] = max families per user
+-- When the user already has the maximum number of live families, the ones closest to expiry are dropped.
+local now = tonumber(ARGV[4])
+local entries = redis.call('HGETALL', KEYS[1])
+local live = {}
+for i = 1, #entries, 2 do
+    local expiry = tonumber(string.match(entries[i + 1], ':(%d+)$'))
+    if expiry == nil or expiry <= now then
+        redis.call('HDEL', KEYS[1], entries[i])
+    else
+        live[#live + 1] = { family = entries[i], expiry = expiry }
+    end
+end
+
+local max = tonumber(ARGV[6])
+if #live >= max then
+    table.sort(live, function(a, b) return a.expiry < b.expiry end)
+    for i = 1, #live - max + 1 do
+        redis.call('HDEL', KEYS[1], live[i].family)
+    end
+end
+
+redis.call('HSET', KEYS[1], ARGV[1], ARGV[2] .. ':' .. ARGV[3])
+redis.call('EXPIRE', KEYS[1], ARGV[5])
+return 1
@@ -0,0 +1,19 @@
+-- Replace a family's current refresh token with a new one.
+-- KEYS[1] = the user's family hash
+-- ARGV[1] = family id, ARGV[2] = jti of the presented token, ARGV[3] = new jti, ARGV[4] = new expiry (epoch seconds),
+-- ARGV[5] = key TTL in seconds
+-- Returns 1 when rotated, 0 when the family does not exist (logged out, expired or evicted), and -1 when the
+-- presented token is an older one of the family: it was used before, so the whole family is revoked.
+local current = redis.call('HGET', KEYS[1], ARGV[1])
+if not current then
+    return 0
+end
+
+if string.match(current, '^([^:]+)') ~= ARGV[2] then
+    redis.call('HDEL', KEYS[1], ARGV[1])
+    return -1
+end
+
+redis.call('HSET', KEYS[1], ARGV[1], ARGV[3] .. ':' .. ARGV[4])
+redis.call('EXPIRE', KEYS[1], ARGV[5])
+return 1
@@ -0,0 +1,97 @@
+package com.example.identify_service.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class BloomFilterTest {
+
+    private static List<String> jwtIds(int count) {
+        List<String> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(UUID.randomUUID().toString());
+        }
+        return ids;
+    }
+
+    @Test
+    void emptyFilterContainsNothing() {
+        BloomFilter filter = new BloomFilter(1_000, 0.01);
+
+        assertThat(jwtIds(1_000)).noneMatch(filter::mightContain);
+    }
+
+    @Test
+    void neverMissesAValueThatWasPut() {
+        BloomFilter filter = new BloomFilter(100_000, 0.01);
+        List<String> revoked = jwtIds(100_000);
+
+        revoked.forEach(filter::put);
+
+        assertThat(revoked).allMatch(filter::mightContain);
+    }
+
+    @Test
+    void neverMissesWhenFilledPastItsExpectedInsertions() {
+        BloomFilter filter = new BloomFilter(10, 0.01);
+        List<String> revoked = jwtIds(5_000);
+
+        revoked.forEach(filter::put);
+
+        assertThat(revoked).allMatch(filter::mightContain);
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTheConfiguredProbability() {
+        BloomFilter filter = new BloomFilter(50_000, 0.01);
+        jwtIds(50_000).forEach(filter::put);
+
+        long falsePositives =
+                jwtIds(100_000).stream().filter(filter::mightContain).count();
+
+        // 1% kỳ vọng; chừa biên rộng để test không chập chờn
+        assertThat(falsePositives).isLessThan(2_000);
+    }
+
+    @Test
+    void concurrentPutsAreNotLost() throws Exception {
+        int threads = 8;
+        BloomFilter filter = new BloomFilter(80_000, 0.01);
+        List<List<String>> batches = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            batches.add(jwtIds(10_000));
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (List<String> batch : batches) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    batch.forEach(filter::put);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (List<String> batch : batches) {
+            assertThat(batch).allMatch(filter::mightContain);
+        }
+    }
+}
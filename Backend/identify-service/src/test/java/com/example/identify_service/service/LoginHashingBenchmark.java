@@ -0,0 +1,79 @@
+package com.example.identify_service.service;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Login password checks per second for each BCrypt cost factor, with 64 concurrent logins. Each check runs
+ * either on the caller thread (the old behaviour) or through {@link PasswordHashingService}.
+ * <p>
+ * Run {@link #main} from the IDE, or after {@code mvn test-compile}:
+ * {@code java -cp target/test-classes:<test classpath> org.openjdk.jmh.Main LoginHashingBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@Threads(64)
+public class LoginHashingBenchmark {
+
+    private static final String PASSWORD = "cashier-shift-start";
+
+    @Param({"8", "10", "12"})
+    int strength;
+
+    PasswordEncoder passwordEncoder;
+    PasswordHashingService passwordHashingService;
+    String encodedPassword;
+
+    @Setup
+    public void setUp() {
+        passwordEncoder = new BCryptPasswordEncoder(strength);
+        encodedPassword = passwordEncoder.encode(PASSWORD);
+        // hàng đợi đủ lớn để benchmark đo thông lượng, không đo số lần bị từ chối
+        passwordHashingService = new PasswordHashingService(passwordEncoder, 0, 1024, Duration.ofMinutes(1));
+    }
+
+    @TearDown
+    public void tearDown() {
+        passwordHashingService.shutdown();
+    }
+
+    @Benchmark
+    public boolean callerThread() {
+        return passwordEncoder.matches(PASSWORD, encodedPassword);
+    }
+
+    @Benchmark
+    public boolean hashingPool() {
+        return passwordHashingService.matches(PASSWORD, encodedPassword);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                        .include(LoginHashingBenchmark.class.getSimpleName())
+                        .build())
+                .run();
+    }
+}
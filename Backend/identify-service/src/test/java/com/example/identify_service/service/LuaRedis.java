@@ -0,0 +1,99 @@
+package com.example.identify_service.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.luaj.vm2.Globals;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+import org.luaj.vm2.lib.VarArgFunction;
+import org.luaj.vm2.lib.jse.JsePlatform;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+/**
+ * {@link StringRedisTemplate} whose script calls run in luaj against in-memory hashes, so the
+ * refresh-token scripts can be tested without a Redis server. Only the hash commands and EXPIRE are
+ * supported; nil replies become {@code false} and the script's number result a {@link Long}, as in Redis.
+ */
+class LuaRedis extends StringRedisTemplate {
+
+    private final Map<String, Map<String, String>> hashes = new HashMap<>();
+    private final Map<String, Long> ttlSeconds = new HashMap<>();
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+        Globals globals = JsePlatform.standardGlobals();
+        LuaTable redis = new LuaTable();
+        redis.set("call", new VarArgFunction() {
+            @Override
+            public Varargs invoke(Varargs varargs) {
+                String[] command = new String[varargs.narg()];
+                for (int i = 0; i < command.length; i++) {
+                    command[i] = varargs.arg(i + 1).tojstring();
+                }
+                return LuaRedis.this.call(command);
+            }
+        });
+        globals.set("redis", redis);
+        globals.set("KEYS", strings(keys));
+        List<String> argv = new ArrayList<>();
+        for (Object arg : args) {
+            argv.add(arg.toString());
+        }
+        globals.set("ARGV", strings(argv));
+
+        LuaValue result = globals.load(script.getScriptAsString(), "script").call();
+        return (T) (result.isnumber() ? Long.valueOf(result.tolong()) : null);
+    }
+
+    Map<String, String> hash(String key) {
+        return hashes.computeIfAbsent(key, k -> new LinkedHashMap<>());
+    }
+
+    Long ttlSeconds(String key) {
+        return ttlSeconds.get(key);
+    }
+
+    private LuaValue call(String[] c) {
+        Map<String, String> hash = hash(c[1]);
+        switch (c[0].toUpperCase()) {
+            case "HGET":
+                String value = hash.get(c[2]);
+                return value == null ? LuaValue.FALSE : LuaValue.valueOf(value);
+            case "HSET":
+                return LuaValue.valueOf(hash.put(c[2], c[3]) == null ? 1 : 0);
+            case "HDEL":
+                return LuaValue.valueOf(hash.remove(c[2]) == null ? 0 : 1);
+            case "HGETALL":
+                List<String> flat = new ArrayList<>();
+                hash.forEach((field, v) -> {
+                    flat.add(field);
+                    flat.add(v);
+                });
+                return strings(flat);
+            case "EXPIRE":
+                if (hash.isEmpty()) {
+                    return LuaValue.valueOf(0);
+                }
+                ttlSeconds.put(c[1], Long.parseLong(c[2]));
+                return LuaValue.valueOf(1);
+            default:
+                throw new LuaError("ERR unknown command '" + c[0] + "'");
+        }
+    }
+
+    private static LuaTable strings(List<String> values) {
+        LuaTable table = new LuaTable();
+        for (int i = 0; i < values.size(); i++) {
+            table.set(i + 1, LuaValue.valueOf(values.get(i)));
+        }
+        return table;
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.identify_service.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.identify_service.configuration.RedisConfig;
+
+class RefreshTokenStoreTest {
+
+    private static final String KEY = "refresh_tokens:u1";
+    private static final long TTL_SECONDS = 604_800;
+
+    private LuaRedis redis;
+    private RefreshTokenStore store;
+
+    @BeforeEach
+    void setUp() {
+        RedisConfig config = new RedisConfig();
+        redis = new LuaRedis();
+        store = new RefreshTokenStore(redis, config.refreshIssueScript(), config.refreshRotateScript(), TTL_SECONDS, 3);
+    }
+
+    private static Date inDays(long days) {
+        return Date.from(Instant.now().plus(Duration.ofDays(days)));
+    }
+
+    private static long epochSeconds(Date date) {
+        return date.toInstant().getEpochSecond();
+    }
+
+    @Test
+    void issueStoresTheCurrentTokenOfTheFamily() {
+        Date expiry = inDays(7);
+
+        store.issue("u1", "f1", "jti-1", expiry);
+
+        assertThat(redis.hash(KEY)).containsEntry("f1", "jti-1:" + epochSeconds(expiry));
+        assertThat(redis.ttlSeconds(KEY)).isEqualTo(TTL_SECONDS);
+    }
+
+    @Test
+    void rotateWithTheCurrentTokenMovesTheFamilyOn() {
+        store.issue("u1", "f1", "jti-1", inDays(7));
+        Date newExpiry = inDays(8);
+
+        assertThat(store.rotate("u1", "f1", "jti-1", "jti-2", newExpiry)).isEqualTo(RefreshTokenStore.Rotation.ROTATED);
+
+        assertThat(redis.hash(KEY)).containsEntry("f1", "jti-2:" + epochSeconds(newExpiry));
+    }
+
+    @Test
+    void rotateOfAnUnknownFamilyChangesNothing() {
+        Date expiry = inDays(7);
+        store.issue("u1", "f1", "jti-1", expiry);
+
+        assertThat(store.rotate("u1", "f2", "jti-1", "jti-2", inDays(8)))
+                .isEqualTo(RefreshTokenStore.Rotation.UNKNOWN_FAMILY);
+        assertThat(store.rotate("u2", "f1", "jti-1", "jti-2", inDays(8)))
+                .isEqualTo(RefreshTokenStore.Rotation.UNKNOWN_FAMILY);
+
+        assertThat(redis.hash(KEY)).containsExactly(entry("f1", "jti-1:" + epochSeconds(expiry)));
+    }
+
+    @Test
+    void reusingAnOlderTokenRevokesTheWholeFamily() {
+        store.issue("u1", "f1", "jti-1", inDays(7));
+        store.issue("u1", "f2", "jti-a", inDays(7));
+        store.rotate("u1", "f1", "jti-1", "jti-2", inDays(8));
+
+        // jti-1 đã dùng một lần: lần dùng lại bị coi là token bị lộ
+        assertThat(store.rotate("u1", "f1", "jti-1", "jti-3", inDays(9))).isEqualTo(RefreshTokenStore.Rotation.REUSED);
+        assertThat(redis.hash(KEY)).doesNotContainKey("f1");
+
+        // token hiện tại của family cũng không còn dùng được
+        assertThat(store.rotate("u1", "f1", "jti-2", "jti-4", inDays(9)))
+                .isEqualTo(RefreshTokenStore.Rotation.UNKNOWN_FAMILY);
+        // các thiết bị khác không bị ảnh hưởng
+        assertThat(store.rotate("u1", "f2", "jti-a", "jti-b", inDays(9))).isEqualTo(RefreshTokenStore.Rotation.ROTATED);
+    }
+
+    @Test
+    void issueDropsExpiredFamilies() {
+        redis.hash(KEY).put("old", "jti-0:" + epochSeconds(inDays(-1)));
+        redis.hash(KEY).put("broken", "no-expiry");
+
+        store.issue("u1", "f1", "jti-1", inDays(7));
+
+        assertThat(redis.hash(KEY)).containsOnlyKeys("f1");
+    }
+
+    @Test
+    void issueAtTheLimitDropsTheFamiliesClosestToExpiry() {
+        store.issue("u1", "f1", "jti-1", inDays(3));
+        store.issue("u1", "f2", "jti-2", inDays(1));
+        store.issue("u1", "f3", "jti-3", inDays(2));
+
+        store.issue("u1", "f4", "jti-4", inDays(7));
+
+        assertThat(redis.hash(KEY)).containsOnlyKeys("f1", "f3", "f4");
+    }
+}
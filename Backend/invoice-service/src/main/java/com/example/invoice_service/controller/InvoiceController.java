@@ -1,9 +1,20 @@
 package com.example.invoice_service.controller;
 
+import com.example.invoice_service.dto.request.InvoiceExportRequest;
 import com.example.invoice_service.dto.response.ResultDTO;
+import com.example.invoice_service.service.InvoiceExportService;
 import com.example.invoice_service.service.InvoiceService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
 import java.util.Map;
 
 @CrossOrigin("http://localhost:5173")
@@ -12,16 +23,21 @@ import java.util.Map;
 public class InvoiceController {
 
     private final InvoiceService invoiceService;
+    private final InvoiceExportService invoiceExportService;
 
-    public InvoiceController(InvoiceService invoiceService) {
+    public InvoiceController(InvoiceService invoiceService, InvoiceExportService invoiceExportService) {
         this.invoiceService = invoiceService;
+        this.invoiceExportService = invoiceExportService;
     }
 
-    // API MỚI: Nhận yêu cầu tạo hóa đơn từ Cart Service
+    // Nhận yêu cầu tạo hóa đơn từ outbox của Cart Service.
+    // 200: đã tạo; 409: hóa đơn đã có (lần gửi lại), cart-service coi như đã giao; lỗi khác trả 5xx để gửi lại
     @PostMapping("/create")
-    public ResponseEntity<ResultDTO> createInvoice(@RequestBody Map<String, Object> payload) {
-        ResultDTO result = invoiceService.createInvoice(payload);
-        return ResponseEntity.ok(result);
+    public ResponseEntity<ResultDTO> createInvoice(
+            @RequestBody Map<String, Object> payload,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        ResultDTO result = invoiceService.createInvoice(payload, idempotencyKey);
+        return ResponseEntity.status(result.isStatus() ? HttpStatus.OK : HttpStatus.CONFLICT).body(result);
     }
 
     @GetMapping("/admin/all")
@@ -36,6 +52,39 @@ public class InvoiceController {
         return ResponseEntity.ok(resultDTO);
     }
 
+    // Xuất hóa đơn dạng NDJSON hoặc CSV, ghi trực tiếp ra response (fromDate/toDate: yyyy-MM-dd)
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportInvoices(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) String fromDate,
+            @RequestParam(required = false) String toDate,
+            @RequestParam(required = false) String invoiceType) {
+        InvoiceExportRequest request = new InvoiceExportRequest();
+        // định dạng hoặc ngày không hợp lệ là lỗi của client: trả 400 thay vì để lỗi parse thành 500
+        try {
+            request.setFormat(InvoiceExportRequest.Format.valueOf(format.toUpperCase()));
+            if (fromDate != null && !fromDate.isEmpty()) {
+                request.setFromDate(LocalDate.parse(fromDate).atStartOfDay());
+            }
+            if (toDate != null && !toDate.isEmpty()) {
+                request.setToDate(LocalDate.parse(toDate).atTime(LocalTime.MAX));
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        request.setInvoiceType(invoiceType);
+
+        boolean csv = request.getFormat() == InvoiceExportRequest.Format.CSV;
+        String fileName = "invoices" + (fromDate != null ? "-" + fromDate : "") + (toDate != null ? "-" + toDate : "")
+                + (csv ? ".csv" : ".ndjson");
+        StreamingResponseBody body = output -> invoiceExportService.export(request, output);
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                        : new MediaType("application", "x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(body);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<ResultDTO> getOne(@PathVariable Integer id) {
         ResultDTO resultDTO = invoiceService.findOne(id);
@@ -3,12 +3,15 @@ package com.example.invoice_service.controller;
 import com.example.invoice_service.dto.request.SalesReportRequest;
 import com.example.invoice_service.dto.response.ResultDTO;
 import com.example.invoice_service.service.SalesReportService;
+import com.example.invoice_service.service.SalesRollupService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.bind.annotation.CrossOrigin;
 
+import java.time.LocalDate;
+
 @CrossOrigin("http://localhost:5173")
 @RestController
 @RequestMapping("/reports")
@@ -16,9 +19,11 @@ public class SaleReportController {
 
     private static final Logger LOG = LoggerFactory.getLogger(SaleReportController.class);
     private final SalesReportService salesReportService;
+    private final SalesRollupService salesRollupService;
 
-    public SaleReportController(SalesReportService salesReportService) {
+    public SaleReportController(SalesReportService salesReportService, SalesRollupService salesRollupService) {
         this.salesReportService = salesReportService;
+        this.salesRollupService = salesRollupService;
     }
 
     @GetMapping
@@ -61,4 +66,33 @@ public class SaleReportController {
         ResultDTO resultDTO = salesReportService.getMonthlySalesReport(request);
         return ResponseEntity.ok(resultDTO);
     }
+
+    // Doanh thu theo từng mốc giờ/ngày/tháng cho biểu đồ (granularity: hour | day | month)
+    @GetMapping("/series")
+    public ResponseEntity<ResultDTO> getRevenueSeries(
+            @RequestParam(defaultValue = "day") String granularity,
+            @RequestParam(required = false) String fromDate,
+            @RequestParam(required = false) String toDate) {
+
+        LOG.info("REST request to get {} revenue series from {} to {}", granularity, fromDate, toDate);
+        SalesReportRequest request = new SalesReportRequest();
+        request.setFromDate(fromDate);
+        request.setToDate(toDate);
+
+        ResultDTO resultDTO = salesReportService.getRevenueSeries(request, granularity);
+        return ResponseEntity.ok(resultDTO);
+    }
+
+    // Tính lại bảng tổng hợp từ hóa đơn (backfill). Không truyền ngày: từ hóa đơn đầu tiên đến hôm nay
+    @PostMapping("/rollups/rebuild")
+    public ResponseEntity<ResultDTO> rebuildRollups(
+            @RequestParam(required = false) String fromDate,
+            @RequestParam(required = false) String toDate) {
+
+        LOG.info("REST request to rebuild sales rollup from {} to {}", fromDate, toDate);
+        ResultDTO resultDTO = salesRollupService.rebuild(
+                fromDate != null && !fromDate.isEmpty() ? LocalDate.parse(fromDate) : null,
+                toDate != null && !toDate.isEmpty() ? LocalDate.parse(toDate) : null);
+        return ResponseEntity.ok(resultDTO);
+    }
 }
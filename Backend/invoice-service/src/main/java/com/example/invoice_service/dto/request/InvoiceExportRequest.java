@@ -0,0 +1,48 @@
+package com.example.invoice_service.dto.request;
+
+import java.time.LocalDateTime;
+
+public class InvoiceExportRequest {
+
+    public enum Format {
+        NDJSON,
+        CSV
+    }
+
+    private Format format = Format.NDJSON;
+    private LocalDateTime fromDate;
+    private LocalDateTime toDate;
+    private String invoiceType;
+
+    public Format getFormat() {
+        return format;
+    }
+
+    public void setFormat(Format format) {
+        this.format = format;
+    }
+
+    public LocalDateTime getFromDate() {
+        return fromDate;
+    }
+
+    public void setFromDate(LocalDateTime fromDate) {
+        this.fromDate = fromDate;
+    }
+
+    public LocalDateTime getToDate() {
+        return toDate;
+    }
+
+    public void setToDate(LocalDateTime toDate) {
+        this.toDate = toDate;
+    }
+
+    public String getInvoiceType() {
+        return invoiceType;
+    }
+
+    public void setInvoiceType(String invoiceType) {
+        this.invoiceType = invoiceType;
+    }
+}
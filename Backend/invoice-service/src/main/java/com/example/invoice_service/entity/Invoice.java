@@ -8,7 +8,11 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "invoices")
+// Mỗi đơn chỉ có một hóa đơn cho mỗi trạng thái; idempotency_key là khóa cart-service gửi kèm mỗi lần giao
+@Table(name = "invoices", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_invoices_order_type", columnNames = {"order_id", "invoice_type"}),
+        @UniqueConstraint(name = "uk_invoices_idempotency_key", columnNames = "idempotency_key")
+})
 @Getter
 @Setter
 @Builder
@@ -28,6 +32,9 @@ public class Invoice {
     @Column(name = "invoice_type")
     private String invoiceType;
 
+    @Column(name = "idempotency_key", length = 100)
+    private String idempotencyKey;
+
     @Column(name = "customer_name")
     private String customerName;
 
@@ -0,0 +1,47 @@
+package com.example.invoice_service.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Pre-aggregated invoice totals per hour or per day and invoice type. Rows are upserted as invoices are
+ * created and can be rebuilt from {@code invoices} at any time.
+ */
+@Entity
+@Table(name = "sales_rollup",
+        uniqueConstraints = @UniqueConstraint(name = "uk_sales_rollup_bucket",
+                columnNames = {"granularity", "bucket_start", "invoice_type"}))
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesRollup {
+
+    public static final String HOUR = "HOUR";
+    public static final String DAY = "DAY";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 8)
+    private String granularity;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Column(name = "invoice_type", nullable = false, length = 50)
+    private String invoiceType;
+
+    @Column(name = "invoice_count", nullable = false)
+    private Long invoiceCount;
+
+    @Column(name = "total_amount", nullable = false, precision = 19, scale = 2)
+    private BigDecimal totalAmount;
+
+    @Column(nullable = false)
+    private Long quantity;
+}
@@ -15,6 +15,8 @@ public interface InvoiceRepository extends JpaRepository<Invoice, Integer> {
     // Kiểm tra tồn tại
     boolean existsByOrderIdAndInvoiceType(Integer orderId, String invoiceType);
 
+    boolean existsByIdempotencyKey(String idempotencyKey);
+
     // 1. Tổng doanh thu (Chỉ tính các hóa đơn đã hoàn thành/thanh toán)
     @Query("SELECT COALESCE(SUM(i.totalAmount), 0) FROM Invoice i WHERE i.invoiceType = 'COMPLETED'")
     BigDecimal getTotalRevenue();
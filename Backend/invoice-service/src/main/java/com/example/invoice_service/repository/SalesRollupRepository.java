@@ -0,0 +1,92 @@
+package com.example.invoice_service.repository;
+
+import com.example.invoice_service.entity.SalesRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface SalesRollupRepository extends JpaRepository<SalesRollup, Long> {
+
+    // Cộng dồn một hóa đơn vào bucket (tạo bucket nếu chưa có)
+    @Modifying
+    @Query(value = "INSERT INTO sales_rollup (granularity, bucket_start, invoice_type, invoice_count, total_amount, quantity) " +
+            "VALUES (:granularity, :bucketStart, :invoiceType, 1, :amount, :quantity) " +
+            "ON DUPLICATE KEY UPDATE invoice_count = invoice_count + 1, " +
+            "total_amount = total_amount + VALUES(total_amount), quantity = quantity + VALUES(quantity)",
+            nativeQuery = true)
+    void increment(@Param("granularity") String granularity,
+                   @Param("bucketStart") LocalDateTime bucketStart,
+                   @Param("invoiceType") String invoiceType,
+                   @Param("amount") BigDecimal amount,
+                   @Param("quantity") long quantity);
+
+    @Modifying
+    @Query("DELETE FROM SalesRollup r WHERE r.bucketStart >= :from AND r.bucketStart < :to")
+    int deleteBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // Tính lại các bucket theo giờ và theo ngày từ bảng invoices. Bucket do record() tạo lại giữa lúc
+    // deleteBetween và lúc insert (hóa đơn mới trong giờ/ngày đang mở) bị ghi đè bằng giá trị tính từ invoices,
+    // vốn đã gồm hóa đơn đó, thay vì làm câu lệnh lỗi trùng khóa
+    @Modifying
+    @Query(value = "INSERT INTO sales_rollup (granularity, bucket_start, invoice_type, invoice_count, total_amount, quantity) " +
+            "SELECT 'HOUR', DATE_FORMAT(i.created_date, '%Y-%m-%d %H:00:00'), COALESCE(i.invoice_type, ''), COUNT(*), " +
+            "COALESCE(SUM(i.total_amount), 0), COALESCE(SUM(q.qty), 0) " +
+            "FROM invoices i LEFT JOIN (SELECT invoice_id, SUM(quantity) AS qty FROM invoice_details GROUP BY invoice_id) q " +
+            "ON q.invoice_id = i.id " +
+            "WHERE i.created_date >= :from AND i.created_date < :to " +
+            "GROUP BY 2, 3 " +
+            "ON DUPLICATE KEY UPDATE invoice_count = VALUES(invoice_count), " +
+            "total_amount = VALUES(total_amount), quantity = VALUES(quantity)",
+            nativeQuery = true)
+    int rebuildHourly(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Modifying
+    @Query(value = "INSERT INTO sales_rollup (granularity, bucket_start, invoice_type, invoice_count, total_amount, quantity) " +
+            "SELECT 'DAY', DATE_FORMAT(i.created_date, '%Y-%m-%d 00:00:00'), COALESCE(i.invoice_type, ''), COUNT(*), " +
+            "COALESCE(SUM(i.total_amount), 0), COALESCE(SUM(q.qty), 0) " +
+            "FROM invoices i LEFT JOIN (SELECT invoice_id, SUM(quantity) AS qty FROM invoice_details GROUP BY invoice_id) q " +
+            "ON q.invoice_id = i.id " +
+            "WHERE i.created_date >= :from AND i.created_date < :to " +
+            "GROUP BY 2, 3 " +
+            "ON DUPLICATE KEY UPDATE invoice_count = VALUES(invoice_count), " +
+            "total_amount = VALUES(total_amount), quantity = VALUES(quantity)",
+            nativeQuery = true)
+    int rebuildDaily(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query(value = "SELECT MIN(created_date) FROM invoices", nativeQuery = true)
+    LocalDateTime findFirstInvoiceDate();
+
+    // Các truy vấn báo cáo chỉ đọc bucket theo ngày
+    @Query("SELECT COALESCE(SUM(r.totalAmount), 0) FROM SalesRollup r " +
+            "WHERE r.granularity = 'DAY' AND r.invoiceType = :invoiceType")
+    BigDecimal sumAmount(@Param("invoiceType") String invoiceType);
+
+    @Query("SELECT COALESCE(SUM(r.totalAmount), 0) FROM SalesRollup r " +
+            "WHERE r.granularity = 'DAY' AND r.invoiceType = :invoiceType AND r.bucketStart BETWEEN :fromDate AND :toDate")
+    BigDecimal sumAmountBetween(@Param("invoiceType") String invoiceType,
+                                @Param("fromDate") LocalDateTime fromDate,
+                                @Param("toDate") LocalDateTime toDate);
+
+    @Query("SELECT COALESCE(SUM(r.invoiceCount), 0) FROM SalesRollup r " +
+            "WHERE r.granularity = 'DAY' AND r.invoiceType = :invoiceType")
+    long sumInvoiceCount(@Param("invoiceType") String invoiceType);
+
+    @Query("SELECT COALESCE(SUM(r.quantity), 0) FROM SalesRollup r " +
+            "WHERE r.granularity = 'DAY' AND r.invoiceType = :invoiceType")
+    long sumQuantity(@Param("invoiceType") String invoiceType);
+
+    // Các bucket trong khoảng [from, to) dùng cho biểu đồ
+    @Query("SELECT r FROM SalesRollup r WHERE r.granularity = :granularity AND r.invoiceType = :invoiceType " +
+            "AND r.bucketStart >= :from AND r.bucketStart < :to ORDER BY r.bucketStart")
+    List<SalesRollup> findBuckets(@Param("granularity") String granularity,
+                                  @Param("invoiceType") String invoiceType,
+                                  @Param("from") LocalDateTime from,
+                                  @Param("to") LocalDateTime to);
+}
@@ -0,0 +1,12 @@
+package com.example.invoice_service.service;
+
+import com.example.invoice_service.dto.request.InvoiceExportRequest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface InvoiceExportService {
+
+    // Ghi toàn bộ hóa đơn thỏa điều kiện ra output, không giữ danh sách trong bộ nhớ
+    void export(InvoiceExportRequest request, OutputStream output) throws IOException;
+}
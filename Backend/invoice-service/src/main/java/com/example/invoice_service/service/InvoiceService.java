@@ -8,6 +8,10 @@ public interface InvoiceService {
     ResultDTO findAllForAdmin();
     ResultDTO findAllForUser();
 
-    // Phương thức mới để tạo hóa đơn
-    ResultDTO createInvoice(Map<String, Object> payload);
+    /**
+     * Creates the invoice described by {@code payload}. Returns status=true when it was created and
+     * status=false when an invoice for the same idempotency key or order/invoice type already exists;
+     * any other failure is thrown.
+     */
+    ResultDTO createInvoice(Map<String, Object> payload, String idempotencyKey);
 }
\ No newline at end of file
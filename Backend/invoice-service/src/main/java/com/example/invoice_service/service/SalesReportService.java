@@ -10,4 +10,6 @@ public interface SalesReportService {
     ResultDTO getDailySalesReport(SalesReportRequest salesReportRequest);
 
     ResultDTO getMonthlySalesReport(SalesReportRequest salesReportRequest);
+
+    ResultDTO getRevenueSeries(SalesReportRequest salesReportRequest, String granularity);
 }
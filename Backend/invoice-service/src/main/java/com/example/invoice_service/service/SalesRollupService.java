@@ -0,0 +1,13 @@
+package com.example.invoice_service.service;
+
+import com.example.invoice_service.dto.response.ResultDTO;
+import com.example.invoice_service.entity.Invoice;
+
+import java.time.LocalDate;
+
+public interface SalesRollupService {
+
+    void record(Invoice invoice);
+
+    ResultDTO rebuild(LocalDate fromDate, LocalDate toDate);
+}
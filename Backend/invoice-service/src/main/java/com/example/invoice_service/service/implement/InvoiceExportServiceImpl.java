@@ -0,0 +1,250 @@
+package com.example.invoice_service.service.implement;
+
+import com.example.invoice_service.dto.request.InvoiceExportRequest;
+import com.example.invoice_service.service.InvoiceExportService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams invoices straight from a forward-only JDBC result set to the response.
+ * <p>
+ * Invoices and their details are read with one LEFT JOIN ordered by invoice id, so each invoice is
+ * complete as soon as the next one starts and nothing has to be collected in memory. The MySQL driver
+ * only streams rows when the fetch size is {@link Integer#MIN_VALUE}; any other value buffers the whole
+ * result set client side.
+ */
+@Service
+public class InvoiceExportServiceImpl implements InvoiceExportService {
+
+    private static final String EXPORT_SQL =
+            "SELECT i.id, i.code, i.order_id, i.invoice_type, i.customer_name, i.payment_method, i.total_amount, " +
+            "i.created_date, d.product_id, d.product_name, d.quantity, d.unit_price, d.subtotal " +
+            "FROM invoices i LEFT JOIN invoice_details d ON d.invoice_id = i.id";
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final String[] CSV_HEADER = {
+            "invoice_id", "code", "order_id", "invoice_type", "customer_name", "payment_method", "total_amount",
+            "created_date", "product_id", "product_name", "quantity", "unit_price", "subtotal"
+    };
+
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public InvoiceExportServiceImpl(DataSource dataSource, ObjectMapper objectMapper) {
+        this.streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        this.streamingJdbcTemplate.setFetchSize(Integer.MIN_VALUE);
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void export(InvoiceExportRequest request, OutputStream output) throws IOException {
+        StringBuilder sql = new StringBuilder(EXPORT_SQL);
+        List<Object> params = new ArrayList<>();
+        List<String> conditions = new ArrayList<>();
+        if (request.getFromDate() != null) {
+            conditions.add("i.created_date >= ?");
+            params.add(Timestamp.valueOf(request.getFromDate()));
+        }
+        if (request.getToDate() != null) {
+            conditions.add("i.created_date <= ?");
+            params.add(Timestamp.valueOf(request.getToDate()));
+        }
+        if (request.getInvoiceType() != null && !request.getInvoiceType().isBlank()) {
+            conditions.add("i.invoice_type = ?");
+            params.add(request.getInvoiceType());
+        }
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        sql.append(" ORDER BY i.id, d.id");
+
+        ExportWriter writer = request.getFormat() == InvoiceExportRequest.Format.CSV
+                ? new CsvWriter(output)
+                : new NdjsonWriter(output, objectMapper);
+        try {
+            writer.start();
+            streamingJdbcTemplate.query(sql.toString(), rs -> {
+                try {
+                    writer.row(rs);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, params.toArray());
+            writer.finish();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private interface ExportWriter {
+        void start() throws IOException;
+
+        void row(ResultSet rs) throws SQLException, IOException;
+
+        void finish() throws IOException;
+    }
+
+    // Một dòng JSON cho mỗi hóa đơn, chi tiết nằm trong mảng items
+    private static final class NdjsonWriter implements ExportWriter {
+
+        private final JsonGenerator json;
+        private Integer currentInvoiceId;
+
+        NdjsonWriter(OutputStream output, ObjectMapper objectMapper) throws IOException {
+            this.json = objectMapper.getFactory().createGenerator(output);
+            this.json.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+            // các object gốc được ngăn cách bằng '\n' tự ghi, không dùng dấu cách mặc định của Jackson
+            this.json.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void row(ResultSet rs) throws SQLException, IOException {
+            int invoiceId = rs.getInt("id");
+            if (currentInvoiceId == null || currentInvoiceId != invoiceId) {
+                endInvoice();
+                currentInvoiceId = invoiceId;
+                json.writeStartObject();
+                json.writeNumberField("invoiceId", invoiceId);
+                json.writeStringField("code", rs.getString("code"));
+                writeNullableNumber("orderId", rs.getObject("order_id", Integer.class));
+                json.writeStringField("invoiceType", rs.getString("invoice_type"));
+                json.writeStringField("customerName", rs.getString("customer_name"));
+                json.writeStringField("paymentMethod", rs.getString("payment_method"));
+                writeNullableDecimal("totalAmount", rs.getBigDecimal("total_amount"));
+                json.writeStringField("createdDate", formatTimestamp(rs.getTimestamp("created_date")));
+                json.writeArrayFieldStart("items");
+            }
+            if (rs.getString("product_id") != null || rs.getString("product_name") != null) {
+                json.writeStartObject();
+                json.writeStringField("productId", rs.getString("product_id"));
+                json.writeStringField("productName", rs.getString("product_name"));
+                writeNullableNumber("quantity", rs.getObject("quantity", Integer.class));
+                writeNullableDecimal("unitPrice", rs.getBigDecimal("unit_price"));
+                writeNullableDecimal("subtotal", rs.getBigDecimal("subtotal"));
+                json.writeEndObject();
+            }
+        }
+
+        @Override
+        public void finish() throws IOException {
+            endInvoice();
+            json.flush();
+        }
+
+        private void endInvoice() throws IOException {
+            if (currentInvoiceId == null) {
+                return;
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+            json.writeRaw('\n');
+        }
+
+        private void writeNullableNumber(String field, Integer value) throws IOException {
+            if (value == null) {
+                json.writeNullField(field);
+            } else {
+                json.writeNumberField(field, value);
+            }
+        }
+
+        private void writeNullableDecimal(String field, BigDecimal value) throws IOException {
+            if (value == null) {
+                json.writeNullField(field);
+            } else {
+                json.writeNumberField(field, value);
+            }
+        }
+    }
+
+    // Một dòng CSV cho mỗi chi tiết hóa đơn (thông tin hóa đơn lặp lại), có BOM để Excel đọc đúng tiếng Việt
+    private static final class CsvWriter implements ExportWriter {
+
+        private final Writer writer;
+
+        CsvWriter(OutputStream output) {
+            this.writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void start() throws IOException {
+            writer.write('\uFEFF');
+            writeLine(CSV_HEADER);
+        }
+
+        @Override
+        public void row(ResultSet rs) throws SQLException, IOException {
+            writeLine(new String[] {
+                    rs.getString("id"),
+                    rs.getString("code"),
+                    rs.getString("order_id"),
+                    rs.getString("invoice_type"),
+                    rs.getString("customer_name"),
+                    rs.getString("payment_method"),
+                    plain(rs.getBigDecimal("total_amount")),
+                    formatTimestamp(rs.getTimestamp("created_date")),
+                    rs.getString("product_id"),
+                    rs.getString("product_name"),
+                    rs.getString("quantity"),
+                    plain(rs.getBigDecimal("unit_price")),
+                    plain(rs.getBigDecimal("subtotal"))
+            });
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+
+        private void writeLine(String[] values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(escape(values[i]));
+            }
+            writer.write("\r\n");
+        }
+
+        private static String escape(String value) {
+            if (value == null) {
+                return "";
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+
+        private static String plain(BigDecimal value) {
+            return value == null ? null : value.toPlainString();
+        }
+    }
+
+    private static String formatTimestamp(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toLocalDateTime().format(DATE_FORMATTER);
+    }
+}
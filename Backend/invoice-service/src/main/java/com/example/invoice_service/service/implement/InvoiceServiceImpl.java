@@ -7,8 +7,17 @@ import com.example.invoice_service.entity.Invoice;
 import com.example.invoice_service.entity.InvoiceDetail;
 import com.example.invoice_service.repository.InvoiceRepository;
 import com.example.invoice_service.service.InvoiceService;
+import com.example.invoice_service.service.SalesRollupService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.ZoneId;
@@ -17,75 +26,129 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class InvoiceServiceImpl implements InvoiceService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(InvoiceServiceImpl.class);
+
+    private static final Set<String> INVOICE_TYPES = Set.of("COMPLETED", "CANCELLED", "RETURNED");
+
     private final InvoiceRepository invoiceRepository;
+    private final SalesRollupService salesRollupService;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate transactionTemplate;
 
-    public InvoiceServiceImpl(InvoiceRepository invoiceRepository) {
+    public InvoiceServiceImpl(InvoiceRepository invoiceRepository, SalesRollupService salesRollupService,
+                              MeterRegistry meterRegistry, PlatformTransactionManager transactionManager) {
         this.invoiceRepository = invoiceRepository;
+        this.salesRollupService = salesRollupService;
+        this.meterRegistry = meterRegistry;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
+    // invoice.create: result=created|duplicate|error, đếm theo loại hóa đơn
+    // Không chạy trong transaction chung: insert trùng khóa phải được bắt sau khi transaction của nó rollback
     @Override
-    public ResultDTO createInvoice(Map<String, Object> payload) {
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ResultDTO createInvoice(Map<String, Object> payload, String idempotencyKey) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        ResultDTO result = null;
         try {
-            Integer orderId = (Integer) payload.get("orderId");
-            String invoiceType = (String) payload.get("invoiceType");
+            result = doCreateInvoice(payload, idempotencyKey);
+            return result;
+        } catch (RuntimeException e) {
+            LOG.error("Could not create invoice for order {}", payload.get("orderId"), e);
+            throw e;
+        } finally {
+            Object type = payload.get("invoiceType");
+            // status=false chỉ có một nghĩa là hóa đơn trùng (xem InvoiceService#createInvoice), lỗi khác bị ném ra
+            String outcome = result == null ? "error" : result.isStatus() ? "created" : "duplicate";
+            sample.stop(Timer.builder("invoice.create")
+                    .tag("type", type != null && INVOICE_TYPES.contains(type.toString()) ? type.toString() : "OTHER")
+                    .tag("result", outcome)
+                    .register(meterRegistry));
+        }
+    }
 
-            // Kiểm tra trùng lặp
-            if (invoiceRepository.existsByOrderIdAndInvoiceType(orderId, invoiceType)) {
-                return new ResultDTO("warning", "Hóa đơn đã tồn tại cho trạng thái này", false);
-            }
+    private ResultDTO doCreateInvoice(Map<String, Object> payload, String idempotencyKey) {
+        Integer orderId = (Integer) payload.get("orderId");
+        String invoiceType = (String) payload.get("invoiceType");
 
-            Invoice invoice = new Invoice();
-            invoice.setOrderId(orderId);
-            // Tạo mã hóa đơn: Ví dụ INV-DH123-COMPLETED
-            invoice.setCode("INV-" + payload.get("code") + "-" + invoiceType);
-            invoice.setInvoiceType(invoiceType);
-            invoice.setCustomerName((String) payload.get("customerName"));
-            invoice.setPaymentMethod((String) payload.get("paymentMethod"));
-
-            // Xử lý an toàn cho số tiền
-            Object totalAmountObj = payload.get("totalAmount");
-            if (totalAmountObj != null) {
-                invoice.setTotalAmount(new BigDecimal(totalAmountObj.toString()));
-            } else {
-                invoice.setTotalAmount(BigDecimal.ZERO);
-            }
+        // Kiểm tra trùng lặp (đường nhanh; unique key trong DB mới là chốt chặn khi gửi lại đồng thời)
+        if (isDuplicate(orderId, invoiceType, idempotencyKey)) {
+            return duplicate();
+        }
 
-            // Xử lý danh sách sản phẩm chi tiết
-            List<Map<String, Object>> items = (List<Map<String, Object>>) payload.get("items");
-            List<InvoiceDetail> details = new ArrayList<>();
-
-            if (items != null) {
-                for (Map<String, Object> item : items) {
-                    InvoiceDetail detail = new InvoiceDetail();
-                    detail.setProductId((String) item.get("productId"));
-                    detail.setProductName((String) item.get("productName"));
-                    detail.setQuantity((Integer) item.get("quantity"));
-
-                    Object unitPriceObj = item.get("unitPrice");
-                    BigDecimal unitPrice = (unitPriceObj != null) ? new BigDecimal(unitPriceObj.toString()) : BigDecimal.ZERO;
-                    detail.setUnitPrice(unitPrice);
-
-                    detail.setSubtotal(unitPrice.multiply(BigDecimal.valueOf(detail.getQuantity())));
-                    detail.setInvoice(invoice);
-                    details.add(detail);
-                }
+        Invoice invoice = toInvoice(payload, orderId, invoiceType, idempotencyKey);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                invoiceRepository.saveAndFlush(invoice);
+                salesRollupService.record(invoice);
+            });
+        } catch (DataIntegrityViolationException e) {
+            if (isDuplicate(orderId, invoiceType, idempotencyKey)) {
+                LOG.info("Invoice for order {} ({}) was created by a concurrent request", orderId, invoiceType);
+                return duplicate();
             }
-            invoice.setDetails(details);
+            throw e;
+        }
+
+        return new ResultDTO("success", "Tạo hóa đơn thành công", true, invoice);
+    }
+
+    private boolean isDuplicate(Integer orderId, String invoiceType, String idempotencyKey) {
+        return (idempotencyKey != null && invoiceRepository.existsByIdempotencyKey(idempotencyKey))
+                || invoiceRepository.existsByOrderIdAndInvoiceType(orderId, invoiceType);
+    }
+
+    private static ResultDTO duplicate() {
+        return new ResultDTO("warning", "Hóa đơn đã tồn tại cho trạng thái này", false);
+    }
 
-            invoiceRepository.save(invoice);
+    private Invoice toInvoice(Map<String, Object> payload, Integer orderId, String invoiceType, String idempotencyKey) {
+        Invoice invoice = new Invoice();
+        invoice.setOrderId(orderId);
+        invoice.setIdempotencyKey(idempotencyKey);
+        // Tạo mã hóa đơn: Ví dụ INV-DH123-COMPLETED
+        invoice.setCode("INV-" + payload.get("code") + "-" + invoiceType);
+        invoice.setInvoiceType(invoiceType);
+        invoice.setCustomerName((String) payload.get("customerName"));
+        invoice.setPaymentMethod((String) payload.get("paymentMethod"));
+
+        // Xử lý an toàn cho số tiền
+        Object totalAmountObj = payload.get("totalAmount");
+        if (totalAmountObj != null) {
+            invoice.setTotalAmount(new BigDecimal(totalAmountObj.toString()));
+        } else {
+            invoice.setTotalAmount(BigDecimal.ZERO);
+        }
+
+        // Xử lý danh sách sản phẩm chi tiết
+        List<Map<String, Object>> items = (List<Map<String, Object>>) payload.get("items");
+        List<InvoiceDetail> details = new ArrayList<>();
 
-            return new ResultDTO("success", "Tạo hóa đơn thành công", true, invoice);
+        if (items != null) {
+            for (Map<String, Object> item : items) {
+                InvoiceDetail detail = new InvoiceDetail();
+                detail.setProductId((String) item.get("productId"));
+                detail.setProductName((String) item.get("productName"));
+                detail.setQuantity((Integer) item.get("quantity"));
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            return new ResultDTO("error", "Lỗi khi tạo hóa đơn: " + e.getMessage(), false);
+                Object unitPriceObj = item.get("unitPrice");
+                BigDecimal unitPrice = (unitPriceObj != null) ? new BigDecimal(unitPriceObj.toString()) : BigDecimal.ZERO;
+                detail.setUnitPrice(unitPrice);
+
+                detail.setSubtotal(unitPrice.multiply(BigDecimal.valueOf(detail.getQuantity())));
+                detail.setInvoice(invoice);
+                details.add(detail);
+            }
         }
+        invoice.setDetails(details);
+        return invoice;
     }
 
     @Override
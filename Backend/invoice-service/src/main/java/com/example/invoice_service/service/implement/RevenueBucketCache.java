@@ -0,0 +1,46 @@
+package com.example.invoice_service.service.implement;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Revenue of chart buckets that have already ended. A closed bucket only changes when the rollup is
+ * rebuilt, which calls {@link #evictFrom(LocalDate)}. Buckets that are still open are never stored here.
+ */
+@Component
+class RevenueBucketCache {
+
+    private final Map<String, BigDecimal> buckets = new ConcurrentHashMap<>();
+    private final int maxEntries;
+
+    RevenueBucketCache(@Value("${report.series.cache-max-entries:50000}") int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    BigDecimal get(String granularity, LocalDateTime bucketStart) {
+        return buckets.get(key(granularity, bucketStart));
+    }
+
+    void put(String granularity, LocalDateTime bucketStart, BigDecimal value) {
+        if (buckets.size() >= maxEntries) {
+            buckets.clear();
+        }
+        buckets.put(key(granularity, bucketStart), value);
+    }
+
+    // Month buckets start on the 1st, so everything from the start of that month is dropped
+    void evictFrom(LocalDate date) {
+        LocalDateTime from = date.withDayOfMonth(1).atStartOfDay();
+        buckets.keySet().removeIf(key -> !LocalDateTime.parse(key.substring(key.indexOf('|') + 1)).isBefore(from));
+    }
+
+    private static String key(String granularity, LocalDateTime bucketStart) {
+        return granularity + "|" + bucketStart;
+    }
+}
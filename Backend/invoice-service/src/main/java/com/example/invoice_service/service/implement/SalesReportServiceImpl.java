@@ -1,10 +1,15 @@
 package com.example.invoice_service.service.implement;
 
 import com.example.invoice_service.dto.request.SalesReportRequest;
+import com.example.invoice_service.dto.response.ChartItemDTO;
 import com.example.invoice_service.dto.response.ResultDTO;
 import com.example.invoice_service.dto.response.SaleReportResponse;
-import com.example.invoice_service.repository.InvoiceRepository;
+import com.example.invoice_service.entity.SalesRollup;
+import com.example.invoice_service.repository.SalesRollupRepository;
 import com.example.invoice_service.service.SalesReportService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -14,20 +19,50 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
+/**
+ * Reads the dashboard figures from the daily buckets in {@code sales_rollup} (see
+ * {@link SalesRollupServiceImpl}), so a report costs one row per day in the range instead of a scan of
+ * every invoice. Each report is timed as {@code report.query}, tagged with the report name.
+ */
 @Service
 @Transactional
 public class SalesReportServiceImpl implements SalesReportService {
 
-    private final InvoiceRepository invoiceRepository;
+    private static final String COMPLETED = "COMPLETED";
+    private static final String RETURNED = "RETURNED";
 
-    public SalesReportServiceImpl(InvoiceRepository invoiceRepository) {
-        this.invoiceRepository = invoiceRepository;
+    private static final DateTimeFormatter HOUR_LABEL = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:00");
+    private static final DateTimeFormatter DAY_LABEL = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final DateTimeFormatter MONTH_LABEL = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    private final SalesRollupRepository salesRollupRepository;
+    private final RevenueBucketCache revenueBucketCache;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${report.series.max-buckets:2000}")
+    private int maxBuckets;
+
+    public SalesReportServiceImpl(SalesRollupRepository salesRollupRepository, RevenueBucketCache revenueBucketCache,
+                                  MeterRegistry meterRegistry) {
+        this.salesRollupRepository = salesRollupRepository;
+        this.revenueBucketCache = revenueBucketCache;
+        this.meterRegistry = meterRegistry;
     }
 
     @Override
     @Transactional(readOnly = true)
     public ResultDTO getAllReport(SalesReportRequest request) {
+        return timed("all", () -> allReport(request));
+    }
+
+    private ResultDTO allReport(SalesReportRequest request) {
         BigDecimal totalRevenue;
 
         // Xử lý lọc theo ngày
@@ -36,14 +71,14 @@ public class SalesReportServiceImpl implements SalesReportService {
             LocalDateTime fromDate = LocalDate.parse(request.getFromDate(), formatter).atStartOfDay();
             LocalDateTime toDate = LocalDate.parse(request.getToDate(), formatter).atTime(LocalTime.MAX);
 
-            totalRevenue = invoiceRepository.getTotalRevenueBetween(fromDate, toDate);
+            totalRevenue = salesRollupRepository.sumAmountBetween(COMPLETED, fromDate, toDate);
         } else {
-            totalRevenue = invoiceRepository.getTotalRevenue();
+            totalRevenue = salesRollupRepository.sumAmount(COMPLETED);
         }
 
-        Long totalOrders = invoiceRepository.countByInvoiceType("COMPLETED");
-        Long totalQuantityProduct = invoiceRepository.getTotalQuantitySold();
-        Long totalOrdersReturned = invoiceRepository.countReturnedOrders();
+        Long totalOrders = salesRollupRepository.sumInvoiceCount(COMPLETED);
+        Long totalQuantityProduct = salesRollupRepository.sumQuantity(COMPLETED);
+        Long totalOrdersReturned = salesRollupRepository.sumInvoiceCount(RETURNED);
 
         // Tính hiển thị (Triệu đồng)
         BigDecimal totalRevenueDisplay = BigDecimal.ZERO;
@@ -64,6 +99,10 @@ public class SalesReportServiceImpl implements SalesReportService {
 
     @Override
     public ResultDTO getDailySalesReport(SalesReportRequest request) {
+        return timed("daily", () -> dailySalesReport(request));
+    }
+
+    private ResultDTO dailySalesReport(SalesReportRequest request) {
         // 1. Xử lý ngày tháng từ request (Giống hàm getAllReport)
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
         LocalDateTime fromDate;
@@ -79,7 +118,7 @@ public class SalesReportServiceImpl implements SalesReportService {
         }
 
         // 2. Gọi Repository để tính tổng tiền
-        BigDecimal totalRevenue = invoiceRepository.getTotalRevenueBetween(fromDate, toDate);
+        BigDecimal totalRevenue = salesRollupRepository.sumAmountBetween(COMPLETED, fromDate, toDate);
 
         // Xử lý null nếu không có đơn nào
         if (totalRevenue == null) totalRevenue = BigDecimal.ZERO;
@@ -91,6 +130,10 @@ public class SalesReportServiceImpl implements SalesReportService {
 
     @Override
     public ResultDTO getMonthlySalesReport(SalesReportRequest request) {
+        return timed("monthly", () -> monthlySalesReport(request));
+    }
+
+    private ResultDTO monthlySalesReport(SalesReportRequest request) {
         // Logic tương tự cho tháng
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
         LocalDateTime fromDate;
@@ -104,9 +147,121 @@ public class SalesReportServiceImpl implements SalesReportService {
             toDate = LocalDate.now().withDayOfMonth(LocalDate.now().lengthOfMonth()).atTime(LocalTime.MAX);
         }
 
-        BigDecimal totalRevenue = invoiceRepository.getTotalRevenueBetween(fromDate, toDate);
+        BigDecimal totalRevenue = salesRollupRepository.sumAmountBetween(COMPLETED, fromDate, toDate);
         if (totalRevenue == null) totalRevenue = BigDecimal.ZERO;
 
         return new ResultDTO("success", "Lấy báo cáo tháng thành công", true, totalRevenue);
     }
-}
\ No newline at end of file
+
+    /**
+     * Revenue of COMPLETED invoices per hour, day or month between {@code fromDate} and {@code toDate}
+     * (inclusive, yyyy-MM-dd). Buckets without sales are returned with 0. Buckets that have already ended
+     * are served from {@link RevenueBucketCache}; the rest are read with a single rollup query (months are
+     * summed from the daily buckets).
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public ResultDTO getRevenueSeries(SalesReportRequest request, String granularity) {
+        return timed("series", () -> revenueSeries(request, granularity));
+    }
+
+    private ResultDTO revenueSeries(SalesReportRequest request, String granularity) {
+        String unit = granularity == null ? "day" : granularity.toLowerCase();
+        if (!unit.equals("hour") && !unit.equals("day") && !unit.equals("month")) {
+            throw new RuntimeException("Unsupported granularity: " + granularity);
+        }
+
+        LocalDate today = LocalDate.now();
+        LocalDate fromDay;
+        LocalDate toDay;
+        if (request != null && request.getFromDate() != null && !request.getFromDate().isEmpty()) {
+            fromDay = LocalDate.parse(request.getFromDate(), DAY_LABEL);
+            toDay = request.getToDate() != null && !request.getToDate().isEmpty()
+                    ? LocalDate.parse(request.getToDate(), DAY_LABEL) : today;
+        } else if (unit.equals("hour")) {
+            fromDay = today;
+            toDay = today;
+        } else if (unit.equals("day")) {
+            fromDay = today.withDayOfMonth(1);
+            toDay = today;
+        } else {
+            fromDay = today.withDayOfMonth(1).minusMonths(11);
+            toDay = today;
+        }
+        if (toDay.isBefore(fromDay)) {
+            throw new RuntimeException("toDate must not be before fromDate");
+        }
+
+        // Danh sách mốc thời gian của biểu đồ
+        List<LocalDateTime> starts = new ArrayList<>();
+        LocalDateTime end = toDay.plusDays(1).atStartOfDay();
+        LocalDateTime cursor = unit.equals("month") ? fromDay.withDayOfMonth(1).atStartOfDay() : fromDay.atStartOfDay();
+        while (cursor.isBefore(end)) {
+            starts.add(cursor);
+            if (starts.size() > maxBuckets) {
+                throw new RuntimeException("Range too large, at most " + maxBuckets + " buckets per request");
+            }
+            cursor = next(unit, cursor);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        BigDecimal[] values = new BigDecimal[starts.size()];
+        LocalDateTime missingFrom = null;
+        LocalDateTime missingTo = null;
+        for (int i = 0; i < starts.size(); i++) {
+            values[i] = revenueBucketCache.get(unit, starts.get(i));
+            if (values[i] == null) {
+                if (missingFrom == null) {
+                    missingFrom = starts.get(i);
+                }
+                missingTo = next(unit, starts.get(i));
+            }
+        }
+
+        if (missingFrom != null) {
+            String source = unit.equals("hour") ? SalesRollup.HOUR : SalesRollup.DAY;
+            Map<LocalDateTime, BigDecimal> loaded = new HashMap<>();
+            for (SalesRollup bucket : salesRollupRepository.findBuckets(source, COMPLETED, missingFrom, missingTo)) {
+                LocalDateTime start = unit.equals("month")
+                        ? bucket.getBucketStart().toLocalDate().withDayOfMonth(1).atStartOfDay()
+                        : bucket.getBucketStart();
+                loaded.merge(start, bucket.getTotalAmount(), BigDecimal::add);
+            }
+            for (int i = 0; i < starts.size(); i++) {
+                if (values[i] != null) {
+                    continue;
+                }
+                LocalDateTime start = starts.get(i);
+                values[i] = loaded.getOrDefault(start, BigDecimal.ZERO);
+                if (!next(unit, start).isAfter(now)) {
+                    revenueBucketCache.put(unit, start, values[i]);
+                }
+            }
+        }
+
+        DateTimeFormatter labelFormat = unit.equals("hour") ? HOUR_LABEL : unit.equals("day") ? DAY_LABEL : MONTH_LABEL;
+        List<ChartItemDTO> series = new ArrayList<>(starts.size());
+        for (int i = 0; i < starts.size(); i++) {
+            series.add(new ChartItemDTO(starts.get(i).format(labelFormat), values[i]));
+        }
+        return new ResultDTO("success", "Lấy biểu đồ doanh thu thành công", true, series, series.size());
+    }
+
+    private static LocalDateTime next(String unit, LocalDateTime start) {
+        switch (unit) {
+            case "hour":
+                return start.plus(1, ChronoUnit.HOURS);
+            case "day":
+                return start.plusDays(1);
+            default:
+                return start.plusMonths(1);
+        }
+    }
+
+    private ResultDTO timed(String query, Supplier<ResultDTO> report) {
+        return Timer.builder("report.query")
+                .tag("query", query)
+                .register(meterRegistry)
+                .record(report);
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.invoice_service.service.implement;
+
+import com.example.invoice_service.dto.response.ResultDTO;
+import com.example.invoice_service.entity.Invoice;
+import com.example.invoice_service.entity.InvoiceDetail;
+import com.example.invoice_service.entity.SalesRollup;
+import com.example.invoice_service.repository.SalesRollupRepository;
+import com.example.invoice_service.service.SalesRollupService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+
+/**
+ * Keeps {@code sales_rollup} in step with {@code invoices}.
+ * <p>
+ * {@link #record(Invoice)} runs inside the transaction that inserts the invoice and adds it to its hour and
+ * day buckets with an upsert, so the rollup commits or rolls back together with the invoice.
+ * {@link #rebuild(LocalDate, LocalDate)} recomputes whole days from {@code invoices}; it is used for backfill
+ * and by the nightly job that re-checks the most recent closed days.
+ */
+@Service
+@Transactional
+public class SalesRollupServiceImpl implements SalesRollupService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SalesRollupServiceImpl.class);
+
+    private final SalesRollupRepository salesRollupRepository;
+    private final RevenueBucketCache revenueBucketCache;
+
+    @Value("${report.rollup.rebuild-days:2}")
+    private int rebuildDays;
+
+    public SalesRollupServiceImpl(SalesRollupRepository salesRollupRepository, RevenueBucketCache revenueBucketCache) {
+        this.salesRollupRepository = salesRollupRepository;
+        this.revenueBucketCache = revenueBucketCache;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(Invoice invoice) {
+        LocalDateTime createdDate = invoice.getCreatedDate();
+        String invoiceType = invoice.getInvoiceType() != null ? invoice.getInvoiceType() : "";
+        BigDecimal amount = invoice.getTotalAmount() != null ? invoice.getTotalAmount() : BigDecimal.ZERO;
+        long quantity = 0;
+        if (invoice.getDetails() != null) {
+            for (InvoiceDetail detail : invoice.getDetails()) {
+                quantity += detail.getQuantity() != null ? detail.getQuantity() : 0;
+            }
+        }
+
+        salesRollupRepository.increment(SalesRollup.HOUR, createdDate.truncatedTo(ChronoUnit.HOURS),
+                invoiceType, amount, quantity);
+        salesRollupRepository.increment(SalesRollup.DAY, createdDate.toLocalDate().atStartOfDay(),
+                invoiceType, amount, quantity);
+    }
+
+    @Override
+    public ResultDTO rebuild(LocalDate fromDate, LocalDate toDate) {
+        if (fromDate == null) {
+            LocalDateTime first = salesRollupRepository.findFirstInvoiceDate();
+            fromDate = first != null ? first.toLocalDate() : LocalDate.now();
+        }
+        if (toDate == null) {
+            toDate = LocalDate.now();
+        }
+        if (toDate.isBefore(fromDate)) {
+            throw new RuntimeException("toDate must not be before fromDate");
+        }
+
+        LocalDateTime from = fromDate.atStartOfDay();
+        LocalDateTime to = toDate.plusDays(1).atStartOfDay();
+        salesRollupRepository.deleteBetween(from, to);
+        int hours = salesRollupRepository.rebuildHourly(from, to);
+        int days = salesRollupRepository.rebuildDaily(from, to);
+        LocalDate evictFrom = fromDate;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                revenueBucketCache.evictFrom(evictFrom);
+            }
+        });
+        LOG.info("Rebuilt sales rollup from {} to {}: {} hourly and {} daily buckets", fromDate, toDate, hours, days);
+
+        return new ResultDTO("success", "Tính lại báo cáo tổng hợp thành công", true,
+                Map.of("fromDate", fromDate.toString(), "toDate", toDate.toString(), "hourBuckets", hours, "dayBuckets", days));
+    }
+
+    // Tính lại các ngày gần nhất đã khép lại, phòng khi có hóa đơn được sửa/xóa trực tiếp trong DB
+    @Scheduled(cron = "${report.rollup.rebuild-cron:0 15 0 * * *}")
+    public void rebuildRecentDays() {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        rebuild(yesterday.minusDays(rebuildDays - 1L), yesterday);
+    }
+}
@@ -0,0 +1,6 @@
+USE invoicedb;
+-- One invoice per order and invoice type, and per idempotency key sent by cart-service
+-- (created by ddl-auto=update as well). Remove existing duplicates before adding the constraints.
+ALTER TABLE invoices ADD COLUMN idempotency_key VARCHAR(100) NULL;
+ALTER TABLE invoices ADD CONSTRAINT uk_invoices_order_type UNIQUE (order_id, invoice_type);
+ALTER TABLE invoices ADD CONSTRAINT uk_invoices_idempotency_key UNIQUE (idempotency_key);
@@ -0,0 +1,14 @@
+USE invoicedb;
+-- Hourly/daily invoice totals read by /reports (created by ddl-auto=update as well)
+CREATE TABLE IF NOT EXISTS sales_rollup (
+    id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    granularity VARCHAR(8) NOT NULL,
+    bucket_start DATETIME(6) NOT NULL,
+    invoice_type VARCHAR(50) NOT NULL,
+    invoice_count BIGINT NOT NULL,
+    total_amount DECIMAL(19, 2) NOT NULL,
+    quantity BIGINT NOT NULL,
+    CONSTRAINT uk_sales_rollup_bucket UNIQUE (granularity, bucket_start, invoice_type)
+);
+-- Backfill from existing invoices: POST /reports/rollups/rebuild
+CREATE INDEX idx_invoices_created_date ON invoices (created_date);
@@ -0,0 +1,80 @@
+package com.example.invoice_service.service.implement;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RevenueBucketCacheTest {
+
+    private static final LocalDateTime APRIL_30 = LocalDateTime.of(2024, 4, 30, 0, 0);
+    private static final LocalDateTime MAY_1 = LocalDateTime.of(2024, 5, 1, 0, 0);
+    private static final LocalDateTime MAY_10 = LocalDateTime.of(2024, 5, 10, 0, 0);
+    private static final LocalDateTime MAY_20_TEN_AM = LocalDateTime.of(2024, 5, 20, 10, 0);
+
+    @Test
+    void returnsNullForABucketThatWasNeverStored() {
+        RevenueBucketCache cache = new RevenueBucketCache(100);
+
+        assertThat(cache.get("day", MAY_1)).isNull();
+    }
+
+    @Test
+    void keepsGranularitiesApart() {
+        RevenueBucketCache cache = new RevenueBucketCache(100);
+
+        cache.put("day", MAY_1, new BigDecimal("100"));
+        cache.put("month", MAY_1, new BigDecimal("3100"));
+
+        assertThat(cache.get("day", MAY_1)).isEqualByComparingTo("100");
+        assertThat(cache.get("month", MAY_1)).isEqualByComparingTo("3100");
+        assertThat(cache.get("hour", MAY_1)).isNull();
+    }
+
+    @Test
+    void evictFromDropsEverythingFromTheStartOfThatMonth() {
+        RevenueBucketCache cache = new RevenueBucketCache(100);
+        cache.put("day", APRIL_30, BigDecimal.ONE);
+        cache.put("month", MAY_1, BigDecimal.ONE);
+        cache.put("day", MAY_10, BigDecimal.ONE);
+        cache.put("hour", MAY_20_TEN_AM, BigDecimal.ONE);
+
+        // hóa đơn ngày 15/5 đổi cả bucket tháng 5 bắt đầu từ ngày 1
+        cache.evictFrom(LocalDate.of(2024, 5, 15));
+
+        assertThat(cache.get("day", APRIL_30)).isEqualByComparingTo("1");
+        assertThat(cache.get("month", MAY_1)).isNull();
+        assertThat(cache.get("day", MAY_10)).isNull();
+        assertThat(cache.get("hour", MAY_20_TEN_AM)).isNull();
+    }
+
+    @Test
+    void evictFromHandlesBucketStartsWithSeconds() {
+        RevenueBucketCache cache = new RevenueBucketCache(100);
+        LocalDateTime withSeconds = LocalDateTime.of(2024, 5, 2, 8, 15, 30);
+        cache.put("hour", withSeconds, BigDecimal.TEN);
+
+        cache.evictFrom(LocalDate.of(2024, 6, 1));
+        assertThat(cache.get("hour", withSeconds)).isEqualByComparingTo("10");
+
+        cache.evictFrom(LocalDate.of(2024, 5, 31));
+        assertThat(cache.get("hour", withSeconds)).isNull();
+    }
+
+    @Test
+    void startsOverOnceMaxEntriesIsReached() {
+        RevenueBucketCache cache = new RevenueBucketCache(3);
+        cache.put("day", MAY_1, BigDecimal.ONE);
+        cache.put("day", MAY_1.plusDays(1), BigDecimal.ONE);
+        cache.put("day", MAY_1.plusDays(2), BigDecimal.ONE);
+
+        cache.put("day", MAY_1.plusDays(3), BigDecimal.TEN);
+
+        assertThat(cache.get("day", MAY_1)).isNull();
+        assertThat(cache.get("day", MAY_1.plusDays(2))).isNull();
+        assertThat(cache.get("day", MAY_1.plusDays(3))).isEqualByComparingTo("10");
+    }
+}
@@ -0,0 +1,85 @@
+// Checkout load test for cart-service (k6: https://k6.io).
+//
+// Each iteration creates a COMPLETED order with 1-3 lines, which is the checkout path: code block from
+// Redis, order insert, stock reservation script, invoice outbox row. It then reads the order back.
+//
+//   k6 run -e BASE_URL=http://localhost:8088 -e PRODUCT_IDS=p1,p2,p3 Backend/loadtest/checkout.js
+//
+// Compare platform and virtual threads against the same database and Redis (see README.md).
+import http from 'k6/http';
+import { check } from 'k6';
+import { Counter } from 'k6/metrics';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8088';
+const PRODUCT_IDS = (__ENV.PRODUCT_IDS || '').split(',').filter((id) => id.length > 0);
+const VUS = Number(__ENV.VUS || 400);
+const DURATION = __ENV.DURATION || '2m';
+
+const checkouts = new Counter('checkouts');
+
+export const options = {
+    scenarios: {
+        checkout: {
+            executor: 'ramping-vus',
+            startVUs: 0,
+            stages: [
+                { duration: '30s', target: VUS },
+                { duration: DURATION, target: VUS },
+                { duration: '10s', target: 0 },
+            ],
+            gracefulRampDown: '10s',
+        },
+    },
+    thresholds: {
+        http_req_failed: ['rate<0.01'],
+        'http_req_duration{name:checkout}': ['p(99)<2000'],
+    },
+    summaryTrendStats: ['avg', 'med', 'p(90)', 'p(95)', 'p(99)', 'max'],
+};
+
+export function setup() {
+    if (PRODUCT_IDS.length === 0) {
+        throw new Error('PRODUCT_IDS is required (comma separated ids of products with enough stock)');
+    }
+}
+
+function orderRequest() {
+    const lines = 1 + Math.floor(Math.random() * 3);
+    const items = [];
+    let subtotal = 0;
+    for (let i = 0; i < lines; i++) {
+        const productId = PRODUCT_IDS[Math.floor(Math.random() * PRODUCT_IDS.length)];
+        const price = 100000;
+        items.push({ productId, productName: productId, price, quantity: 1, subtotal: price });
+        subtotal += price;
+    }
+    return {
+        id: 0,
+        items,
+        subtotal,
+        discount: 0,
+        tax: 0,
+        total: subtotal,
+        customerName: 'Load test',
+        status: 'COMPLETED',
+        paymentMethod: 'CASH',
+        cashAmount: subtotal,
+        transferAmount: 0,
+    };
+}
+
+export default function () {
+    const created = http.post(`${BASE_URL}/orders`, JSON.stringify(orderRequest()), {
+        headers: { 'Content-Type': 'application/json' },
+        tags: { name: 'checkout' },
+    });
+    const ok = check(created, { 'order created': (r) => r.status === 201 });
+    if (!ok) {
+        return;
+    }
+    checkouts.add(1);
+
+    const orderId = created.json('data.orderId');
+    const fetched = http.get(`${BASE_URL}/orders/${orderId}`, { tags: { name: 'order' } });
+    check(fetched, { 'order read back': (r) => r.status === 200 });
+}
@@ -0,0 +1,40 @@
+package com.example.product_service.configuration;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import com.example.product_service.service.ProductCache;
+
+@Configuration
+public class RedisConfig {
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(
+            RedisConnectionFactory connectionFactory, ProductCache productCache) {
+        // started by RedisListenerStarter so the service also comes up while Redis is down
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer() {
+            @Override
+            public boolean isAutoStartup() {
+                return false;
+            }
+        };
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(productCache, new ChannelTopic(ProductCache.INVALIDATE_CHANNEL));
+        container.addMessageListener(productCache, new ChannelTopic(ProductCache.INVALIDATE_SLUG_CHANNEL));
+        return container;
+    }
+
+    @Bean
+    public RedisScript<Long> productCacheSetScript() {
+        DefaultRedisScript<Long> script = new DefaultRedisScript<>();
+        script.setLocation(new ClassPathResource("scripts/product_cache_set.lua"));
+        script.setResultType(Long.class);
+        return script;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.product_service.configuration;
+
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Starts the Redis listener container in the background and keeps retrying until Redis is reachable. Until then
+ * other instances' invalidations are missed and near-cache entries only go stale up to their TTL.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RedisListenerStarter {
+
+    private final RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Scheduled(fixedDelayString = "${redis.listener.retry-interval:5000}")
+    public void startListener() {
+        if (redisMessageListenerContainer.isRunning()) {
+            return;
+        }
+        try {
+            redisMessageListenerContainer.start();
+            log.info("Redis listener started");
+        } catch (Exception e) {
+            log.warn("Redis listener not started, retrying: {}", e.getMessage());
+        }
+    }
+}
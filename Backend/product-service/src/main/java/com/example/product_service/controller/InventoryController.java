@@ -3,40 +3,68 @@ package com.example.product_service.controller;
 import java.util.List;
 import java.util.Map;
 
-import org.springframework.beans.factory.annotation.Autowired;
+import jakarta.validation.Valid;
+
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import com.example.product_service.entity.Product;
-import com.example.product_service.repository.ProductRepository;
+import com.example.product_service.dto.request.ApiResponse;
+import com.example.product_service.dto.request.InventoryUpdateRequest;
+import com.example.product_service.dto.response.InventoryUpdateResponse;
+import com.example.product_service.exception.ErrorCode;
+import com.example.product_service.service.InventoryService;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
 
 @RestController
 @RequestMapping("/inventory")
 @CrossOrigin(origins = "http://localhost:5173")
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class InventoryController {
 
-    @Autowired
-    private ProductRepository productRepository;
+    InventoryService inventoryService;
+
+    // Cập nhật kho cho cả giỏ hàng trong một transaction, trả về kết quả từng dòng
+    @PostMapping("/bulk")
+    public ResponseEntity<ApiResponse<InventoryUpdateResponse>> bulkUpdateInventory(
+            @RequestBody @Valid InventoryUpdateRequest request) {
+        InventoryUpdateResponse result = inventoryService.applyBulk(request.getRef(), request.getItems());
+        if (result.isApplied()) {
+            return ResponseEntity.ok(ApiResponse.<InventoryUpdateResponse>builder()
+                    .result(result)
+                    .build());
+        }
+        ErrorCode errorCode = ErrorCode.INSUFFICIENT_STOCK;
+        return ResponseEntity.status(errorCode.getStatusCode())
+                .body(ApiResponse.<InventoryUpdateResponse>builder()
+                        .code(errorCode.getCode())
+                        .message(errorCode.getMessage())
+                        .result(result)
+                        .build());
+    }
 
     @PostMapping("/update")
     public ResponseEntity<String> updateInventory(@RequestBody List<Map<String, Object>> items) {
         try {
-            for (Map<String, Object> item : items) {
-                String productId = (String) item.get("productId");
-                Integer quantity = (Integer) item.get("quantity");
-                Integer operation = (Integer) item.get("operation"); // 1 hoặc -1
-
-                Product product = productRepository
-                        .findById(productId)
-                        .orElseThrow(() -> new RuntimeException("Product not found: " + productId));
-
-                int newStock = product.getStock() + (quantity * operation);
-                if (newStock < 0) {
-                    throw new RuntimeException("Insufficient stock for product: " + productId);
-                }
-
-                product.setStock(newStock);
-                productRepository.save(product);
+            List<InventoryUpdateRequest.ProductInventoryItem> inventoryItems = items.stream()
+                    .map(item -> InventoryUpdateRequest.ProductInventoryItem.builder()
+                            .productId((String) item.get("productId"))
+                            .quantity((Integer) item.get("quantity"))
+                            .operation((Integer) item.get("operation")) // 1 hoặc -1
+                            .build())
+                    .toList();
+
+            InventoryUpdateResponse result = inventoryService.applyBulk(null, inventoryItems);
+            if (!result.isApplied()) {
+                String failed = result.getLines().stream()
+                        .filter(line -> line.getStatus() != InventoryUpdateResponse.LineStatus.ROLLED_BACK)
+                        .map(line -> line.getProductId() + " (" + line.getStatus() + ")")
+                        .toList()
+                        .toString();
+                return ResponseEntity.badRequest().body("Error updating inventory: " + failed);
             }
 
             return ResponseEntity.ok("Inventory updated successfully");
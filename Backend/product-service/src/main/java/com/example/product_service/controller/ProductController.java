@@ -7,7 +7,9 @@ import jakarta.validation.Valid;
 import org.springframework.web.bind.annotation.*;
 
 import com.example.product_service.dto.request.*;
+import com.example.product_service.dto.response.ProductBatchResponse;
 import com.example.product_service.dto.response.ProductResponse;
+import com.example.product_service.dto.response.ProductSearchResponse;
 import com.example.product_service.service.ProductService;
 
 import lombok.AccessLevel;
@@ -32,26 +34,20 @@ public class ProductController {
                 .build();
     }
 
+    // withTotal=false: bỏ qua tổng số bản ghi (client cuộn vô hạn)
     @GetMapping()
     public ApiResponse<List<ProductResponse>> searchProducts(
             @RequestParam(name = "name", required = false) String name,
             @RequestParam(name = "brand", required = false) String brand,
             @RequestParam(name = "category", required = false) String category,
             @RequestParam(name = "page", required = false) Integer page,
-            @RequestParam(name = "size", required = false) Integer size) {
-        List<ProductResponse> products;
-        long total;
-
-        if (page != null && size != null) {
-            products = productService.searchProducts(name, brand, category, page, size);
-            total = productService.countProducts(name, brand, category);
-        } else {
-            products = productService.searchProducts(name, brand, category, null, null);
-            total = products.size();
-        }
+            @RequestParam(name = "size", required = false) Integer size,
+            @RequestParam(name = "withTotal", defaultValue = "true") boolean withTotal) {
+        ProductSearchResponse response =
+                productService.searchProductsWithTotal(name, brand, category, page, size, withTotal);
         return ApiResponse.<List<ProductResponse>>builder()
-                .result(products)
-                .total(total)
+                .result(response.getProducts())
+                .total(response.getTotal())
                 .build();
     }
 
@@ -62,6 +58,21 @@ public class ProductController {
                 .build();
     }
 
+    // Lấy nhiều sản phẩm trong một lần gọi (giỏ hàng)
+    @PostMapping("/batch")
+    public ApiResponse<ProductBatchResponse> getProducts(@RequestBody ProductBatchRequest request) {
+        return ApiResponse.<ProductBatchResponse>builder()
+                .result(productService.getProducts(request))
+                .build();
+    }
+
+    @GetMapping("/slug/{slug}")
+    public ApiResponse<ProductResponse> getProductBySlug(@PathVariable("slug") String slug) {
+        return ApiResponse.<ProductResponse>builder()
+                .result(productService.getProductBySlug(slug))
+                .build();
+    }
+
     @PutMapping("/{productId}")
     public ApiResponse<ProductResponse> updateProduct(
             @PathVariable("productId") String productId, @RequestBody @Valid ProductUpdateRequest request) {
@@ -4,6 +4,7 @@ import java.util.List;
 
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -16,6 +17,10 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class InventoryUpdateRequest {
 
+    // Mã định danh của lần cập nhật; gửi lại cùng ref thì không trừ/cộng kho lần nữa
+    @Size(max = 100, message = "Ref must be at most 100 characters")
+    private String ref;
+
     @NotEmpty(message = "Product items cannot be empty")
     private List<ProductInventoryItem> items;
 
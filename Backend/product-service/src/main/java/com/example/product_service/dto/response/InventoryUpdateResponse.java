@@ -0,0 +1,41 @@
+package com.example.product_service.dto.response;
+
+import java.util.List;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class InventoryUpdateResponse {
+
+    // true khi toàn bộ giỏ hàng đã được cập nhật kho, false khi đã rollback
+    boolean applied;
+
+    // true khi ref đã được áp dụng trước đó, kho không bị cập nhật lại
+    boolean duplicate;
+
+    List<LineResult> lines;
+
+    public enum LineStatus {
+        APPLIED,
+        INSUFFICIENT_STOCK,
+        NOT_FOUND,
+        ROLLED_BACK
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class LineResult {
+        String productId;
+        Integer delta;
+        LineStatus status;
+        Integer availableStock;
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.product_service.dto.response;
+
+import java.util.List;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ProductBatchResponse {
+
+    // Theo thứ tự yêu cầu: các id trước, sau đó các slug (mỗi sản phẩm một lần)
+    List<ProductResponse> products;
+
+    List<String> missingIds;
+
+    List<String> missingSlugs;
+}
@@ -0,0 +1,17 @@
+package com.example.product_service.dto.response;
+
+import java.util.List;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ProductSearchResponse {
+    List<ProductResponse> products;
+    // null khi client không yêu cầu tổng số (withTotal=false)
+    Long total;
+}
@@ -16,6 +16,10 @@ public enum ErrorCode {
     UNAUTHENTICATED(1006, "Unauthenticated", HttpStatus.UNAUTHORIZED),
     UNAUTHORIZED(1007, "You do not have permission", HttpStatus.FORBIDDEN),
     INVALID_DOB(1008, "Your age must be at least {min}", HttpStatus.BAD_REQUEST),
+    INVENTORY_ITEM_INVALID(
+            1009, "Inventory item must have productId, quantity >= 0 and operation 1 or -1", HttpStatus.BAD_REQUEST),
+    INSUFFICIENT_STOCK(1010, "Insufficient stock", HttpStatus.CONFLICT),
+    PRODUCT_BATCH_TOO_LARGE(1011, "Too many ids and slugs in one batch", HttpStatus.BAD_REQUEST),
     ;
 
     ErrorCode(int code, String message, HttpStatusCode statusCode) {
@@ -1,22 +1,27 @@
 package com.example.product_service.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.example.product_service.entity.Product;
+import com.example.product_service.repository.projection.ProductSearchView;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, String> {
     // Tìm sản phẩm theo slug (để hiển thị chi tiết)
     Optional<Product> findBySlug(String slug);
 
+    List<Product> findBySlugIn(Collection<String> slugs);
+
     // Kiểm tra sản phẩm đã tồn tại chưa
     boolean existsByName(String name);
 
@@ -33,6 +38,20 @@ public interface ProductRepository extends JpaRepository<Product, String> {
             @Param("category") String category,
             Pageable pageable);
 
+    // Như searchProducts nhưng không chạy câu COUNT
+    @Query(
+            """
+		SELECT p FROM Product p
+		WHERE (:name IS NULL OR :name = '' OR LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%')))
+			AND (:brand IS NULL OR :brand = '' OR LOWER(p.brand) LIKE LOWER(CONCAT('%', :brand, '%')))
+			AND (:category IS NULL OR :category = '' OR LOWER(p.category) LIKE LOWER(CONCAT('%', :category, '%')))
+		""")
+    Slice<Product> searchProductsSlice(
+            @Param("name") String name,
+            @Param("brand") String brand,
+            @Param("category") String category,
+            Pageable pageable);
+
     @Query(
             """
 		SELECT p FROM Product p
@@ -51,4 +70,8 @@ public interface ProductRepository extends JpaRepository<Product, String> {
 		AND (:category IS NULL OR :category = '' OR LOWER(p.category) LIKE LOWER(CONCAT('%', :category, '%')))
 	""")
     long countProducts(@Param("name") String name, @Param("brand") String brand, @Param("category") String category);
+
+    // Dữ liệu cho chỉ mục tìm kiếm trong bộ nhớ
+    @Query("SELECT p.id AS id, p.name AS name, p.brand AS brand, p.category AS category FROM Product p")
+    List<ProductSearchView> findAllSearchFields();
 }
@@ -0,0 +1,12 @@
+package com.example.product_service.repository.projection;
+
+// Các trường dùng để dựng chỉ mục tìm kiếm sản phẩm
+public interface ProductSearchView {
+    String getId();
+
+    String getName();
+
+    String getBrand();
+
+    String getCategory();
+}
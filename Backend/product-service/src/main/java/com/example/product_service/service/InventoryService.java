@@ -0,0 +1,144 @@
+package com.example.product_service.service;
+
+import java.util.*;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+
+import com.example.product_service.dto.request.InventoryUpdateRequest;
+import com.example.product_service.dto.response.InventoryUpdateResponse;
+import com.example.product_service.dto.response.InventoryUpdateResponse.LineResult;
+import com.example.product_service.dto.response.InventoryUpdateResponse.LineStatus;
+import com.example.product_service.exception.AppException;
+import com.example.product_service.exception.ErrorCode;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+
+@Service
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+@Slf4j
+public class InventoryService {
+
+    // Chỉ trừ kho khi còn đủ hàng: stock >= số lượng cần trừ (0 với thao tác cộng kho)
+    static final String UPDATE_STOCK_SQL = "UPDATE product SET stock = stock + ? WHERE id = ? AND stock >= ?";
+
+    // Ghi nhận ref trong cùng transaction; 0 dòng nghĩa là ref đã được áp dụng
+    static final String INSERT_MOVEMENT_SQL = "INSERT IGNORE INTO stock_movement (ref, applied_at) VALUES (?, NOW(6))";
+
+    static final String SELECT_STOCK_SQL = "SELECT id, stock FROM product WHERE id IN (:ids)";
+
+    JdbcTemplate jdbcTemplate;
+    NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    ProductCache productCache;
+
+    /**
+     * Applies every line of a basket in one transaction. Lines for the same product are merged and the
+     * conditional updates are sent as one JDBC batch ordered by product id, so concurrent baskets always
+     * lock rows in the same order. If any line cannot be applied the whole basket is rolled back.
+     * <p>
+     * A non-null {@code ref} is recorded in {@code stock_movement} in the same transaction, so a basket that is
+     * sent again with the same ref (e.g. retried after a timeout) is answered as applied without changing stock.
+     */
+    @Transactional
+    public InventoryUpdateResponse applyBulk(String ref, List<InventoryUpdateRequest.ProductInventoryItem> items) {
+        SortedMap<String, Integer> deltas = mergeDeltas(items);
+        List<Map.Entry<String, Integer>> lines = new ArrayList<>(deltas.entrySet());
+        if (ref != null && jdbcTemplate.update(INSERT_MOVEMENT_SQL, ref) == 0) {
+            log.info("Inventory update {} was already applied", ref);
+            return InventoryUpdateResponse.builder()
+                    .applied(true)
+                    .duplicate(true)
+                    .lines(List.of())
+                    .build();
+        }
+        if (lines.isEmpty()) {
+            return InventoryUpdateResponse.builder()
+                    .applied(true)
+                    .lines(List.of())
+                    .build();
+        }
+
+        int[][] counts = jdbcTemplate.batchUpdate(UPDATE_STOCK_SQL, lines, lines.size(), (ps, line) -> {
+            int delta = line.getValue();
+            ps.setInt(1, delta);
+            ps.setString(2, line.getKey());
+            ps.setInt(3, Math.max(0, -delta));
+        });
+
+        List<String> failedIds = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            if (counts[0][i] == 0) {
+                failedIds.add(lines.get(i).getKey());
+            }
+        }
+
+        if (failedIds.isEmpty()) {
+            // tồn kho đã đổi: bỏ sản phẩm khỏi cache sau khi commit
+            productCache.evict(List.copyOf(deltas.keySet()));
+            List<LineResult> results = lines.stream()
+                    .map(line -> lineResult(line, LineStatus.APPLIED, null))
+                    .toList();
+            return InventoryUpdateResponse.builder()
+                    .applied(true)
+                    .lines(results)
+                    .build();
+        }
+
+        TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+        Map<String, Integer> currentStock = findStock(failedIds);
+        log.warn("Inventory update rolled back, failed products: {}", failedIds);
+
+        List<LineResult> results = lines.stream()
+                .map(line -> {
+                    if (!failedIds.contains(line.getKey())) {
+                        return lineResult(line, LineStatus.ROLLED_BACK, null);
+                    }
+                    Integer stock = currentStock.get(line.getKey());
+                    return stock == null
+                            ? lineResult(line, LineStatus.NOT_FOUND, null)
+                            : lineResult(line, LineStatus.INSUFFICIENT_STOCK, stock);
+                })
+                .toList();
+        return InventoryUpdateResponse.builder().applied(false).lines(results).build();
+    }
+
+    private SortedMap<String, Integer> mergeDeltas(List<InventoryUpdateRequest.ProductInventoryItem> items) {
+        SortedMap<String, Integer> deltas = new TreeMap<>();
+        for (InventoryUpdateRequest.ProductInventoryItem item : items) {
+            if (item.getProductId() == null
+                    || item.getQuantity() == null
+                    || item.getQuantity() < 0
+                    || item.getOperation() == null
+                    || Math.abs(item.getOperation()) != 1) {
+                throw new AppException(ErrorCode.INVENTORY_ITEM_INVALID);
+            }
+            deltas.merge(item.getProductId(), item.getQuantity() * item.getOperation(), Integer::sum);
+        }
+        return deltas;
+    }
+
+    private Map<String, Integer> findStock(List<String> ids) {
+        Map<String, Integer> stock = new HashMap<>();
+        namedParameterJdbcTemplate.query(SELECT_STOCK_SQL, new MapSqlParameterSource("ids", ids), rs -> {
+            stock.put(rs.getString("id"), rs.getInt("stock"));
+        });
+        return stock;
+    }
+
+    private LineResult lineResult(Map.Entry<String, Integer> line, LineStatus status, Integer availableStock) {
+        return LineResult.builder()
+                .productId(line.getKey())
+                .delta(line.getValue())
+                .status(status)
+                .availableStock(availableStock)
+                .build();
+    }
+}
@@ -0,0 +1,286 @@
+package com.example.product_service.service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.product_service.dto.response.ProductResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Two-tier cache of {@link ProductResponse} by product id, plus slug to id mappings.
+ * <p>
+ * Lookups go to the in-process near cache first, then to Redis ({@code product:id:{id}}, JSON), then to the
+ * loader. A near-cache miss is computed once per key per instance, so a burst of requests for the same product
+ * makes a single Redis/database round trip. The near caches hold futures and the loading thread completes them
+ * itself, so no map lock is held while Redis or the database is called (a blocking load inside
+ * {@code Cache.get} would pin the carrier thread under virtual threads). Writes to a product call {@link #evict(Collection)}; the eviction
+ * runs after the surrounding transaction commits, deletes the Redis entries and is broadcast on the
+ * {@code product:invalidate} channel so every instance drops its near-cache copy. Each eviction also bumps
+ * {@code product:version:{id}}; a loader only writes its result to Redis if that version is unchanged since it
+ * started, so a load that read the database before a write cannot put the old JSON back after the eviction.
+ * Slug mappings are dropped the same way by {@link #evictSlugs(Collection)}, broadcast on
+ * {@code product:invalidate:slug}. Redis errors are logged and treated as misses.
+ */
+@Component
+@Slf4j
+public class ProductCache implements MessageListener {
+
+    public static final String INVALIDATE_CHANNEL = "product:invalidate";
+    public static final String INVALIDATE_SLUG_CHANNEL = "product:invalidate:slug";
+
+    private static final String ID_KEY_PREFIX = "product:id:";
+    private static final String SLUG_KEY_PREFIX = "product:slug:";
+    private static final String VERSION_KEY_PREFIX = "product:version:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisScript<Long> productCacheSetScript;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter compactWriter;
+    private final AsyncCache<String, ProductResponse> nearById;
+    private final AsyncCache<String, String> nearSlugs;
+    private final Duration redisTtl;
+
+    private final Counter nearHits;
+    private final Counter nearMisses;
+    private final Counter redisHits;
+    private final Counter redisMisses;
+
+    public ProductCache(
+            StringRedisTemplate redisTemplate,
+            RedisScript<Long> productCacheSetScript,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${product.cache.near.max-size:10000}") long nearMaxSize,
+            @Value("${product.cache.near.ttl:30s}") Duration nearTtl,
+            @Value("${product.cache.redis.ttl:10m}") Duration redisTtl) {
+        this.redisTemplate = redisTemplate;
+        this.productCacheSetScript = productCacheSetScript;
+        this.objectMapper = objectMapper;
+        this.compactWriter = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+        this.redisTtl = redisTtl;
+        this.nearById = Caffeine.newBuilder()
+                .maximumSize(nearMaxSize)
+                .expireAfterWrite(nearTtl)
+                .buildAsync();
+        this.nearSlugs = Caffeine.newBuilder()
+                .maximumSize(nearMaxSize)
+                .expireAfterWrite(redisTtl)
+                .buildAsync();
+        this.nearHits = counter(meterRegistry, "near", "hit");
+        this.nearMisses = counter(meterRegistry, "near", "miss");
+        this.redisHits = counter(meterRegistry, "redis", "hit");
+        this.redisMisses = counter(meterRegistry, "redis", "miss");
+    }
+
+    public ProductResponse get(String id, Supplier<ProductResponse> loader) {
+        CompletableFuture<ProductResponse> cached = nearById.getIfPresent(id);
+        if (cached != null) {
+            nearHits.increment();
+            return join(cached);
+        }
+        nearMisses.increment();
+        return getOrLoad(nearById, id, key -> loadShared(key, loader));
+    }
+
+    /**
+     * Resolves a slug to a product id. The mapping is kept until it expires or the slug is passed to
+     * {@link #evictSlugs(Collection)}, which product updates and deletes do for the old and new slug.
+     */
+    public String idForSlug(String slug, Supplier<String> loader) {
+        return getOrLoad(nearSlugs, slug, key -> {
+            String id = redisGet(SLUG_KEY_PREFIX + key);
+            if (id == null) {
+                id = loader.get();
+                redisSet(SLUG_KEY_PREFIX + key, id);
+            }
+            return id;
+        });
+    }
+
+    public void evict(Collection<String> ids) {
+        if (!ids.isEmpty()) {
+            afterCommit(() -> doEvict(ids));
+        }
+    }
+
+    public void evictSlugs(Collection<String> slugs) {
+        if (!slugs.isEmpty()) {
+            afterCommit(() -> doEvictSlugs(slugs));
+        }
+    }
+
+    // Instance khác vừa cập nhật sản phẩm hoặc đổi slug
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody());
+        if (INVALIDATE_SLUG_CHANNEL.equals(new String(message.getChannel()))) {
+            nearSlugs.synchronous().invalidate(body);
+        } else {
+            nearById.synchronous().invalidate(body);
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private void doEvict(Collection<String> ids) {
+        nearById.synchronous().invalidateAll(ids);
+        try {
+            // tăng version trước khi xóa để loader đang chạy dở không ghi lại bản cũ
+            for (String id : ids) {
+                redisTemplate.opsForValue().increment(VERSION_KEY_PREFIX + id);
+                redisTemplate.expire(VERSION_KEY_PREFIX + id, redisTtl);
+            }
+            redisTemplate.delete(ids.stream().map(id -> ID_KEY_PREFIX + id).toList());
+            ids.forEach(id -> redisTemplate.convertAndSend(INVALIDATE_CHANNEL, id));
+        } catch (Exception e) {
+            log.warn("Could not evict products {} from Redis: {}", ids, e.getMessage());
+        }
+    }
+
+    private void doEvictSlugs(Collection<String> slugs) {
+        nearSlugs.synchronous().invalidateAll(slugs);
+        try {
+            redisTemplate.delete(
+                    slugs.stream().map(slug -> SLUG_KEY_PREFIX + slug).toList());
+            slugs.forEach(slug -> redisTemplate.convertAndSend(INVALIDATE_SLUG_CHANNEL, slug));
+        } catch (Exception e) {
+            log.warn("Could not evict product slugs {} from Redis: {}", slugs, e.getMessage());
+        }
+    }
+
+    // Luồng đặt được future vào map sẽ tự nạp; các luồng khác chờ future đó. Future lỗi hoặc null bị Caffeine bỏ đi
+    private static <V> V getOrLoad(AsyncCache<String, V> cache, String key, Function<String, V> loader) {
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> existing = cache.asMap().putIfAbsent(key, created);
+        if (existing != null) {
+            return join(existing);
+        }
+        try {
+            V value = loader.apply(key);
+            created.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            created.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private static <V> V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private ProductResponse loadShared(String id, Supplier<ProductResponse> loader) {
+        // đọc version trước khi đọc cache/DB; null khi Redis lỗi thì không ghi lại vào Redis
+        String version = redisVersion(id);
+        String json = redisGet(ID_KEY_PREFIX + id);
+        if (json != null) {
+            try {
+                ProductResponse product = objectMapper.readValue(json, ProductResponse.class);
+                redisHits.increment();
+                return product;
+            } catch (JsonProcessingException e) {
+                log.warn("Discarding unreadable cache entry for product {}", id);
+            }
+        }
+        redisMisses.increment();
+
+        ProductResponse product = loader.get();
+        if (version == null) {
+            return product;
+        }
+        try {
+            redisSetIfCurrent(id, version, compactWriter.writeValueAsString(product));
+        } catch (JsonProcessingException e) {
+            log.warn("Could not serialize product {} for Redis", id);
+        }
+        return product;
+    }
+
+    private String redisVersion(String id) {
+        try {
+            String version = redisTemplate.opsForValue().get(VERSION_KEY_PREFIX + id);
+            return version != null ? version : "0";
+        } catch (Exception e) {
+            log.debug("Redis read failed for version of {}: {}", id, e.getMessage());
+            return null;
+        }
+    }
+
+    private void redisSetIfCurrent(String id, String version, String json) {
+        try {
+            redisTemplate.execute(
+                    productCacheSetScript,
+                    List.of(ID_KEY_PREFIX + id, VERSION_KEY_PREFIX + id),
+                    version,
+                    json,
+                    Long.toString(redisTtl.toMillis()));
+        } catch (Exception e) {
+            log.debug("Redis write failed for product {}: {}", id, e.getMessage());
+        }
+    }
+
+    private String redisGet(String key) {
+        try {
+            return redisTemplate.opsForValue().get(key);
+        } catch (Exception e) {
+            log.debug("Redis read failed for {}: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private void redisSet(String key, String value) {
+        try {
+            redisTemplate.opsForValue().set(key, value, redisTtl);
+        } catch (Exception e) {
+            log.debug("Redis write failed for {}: {}", key, e.getMessage());
+        }
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String tier, String result) {
+        return Counter.builder("product.cache.requests")
+                .tag("tier", tier)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,263 @@
+package com.example.product_service.service;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.product_service.entity.Product;
+import com.example.product_service.repository.ProductRepository;
+import com.example.product_service.repository.projection.ProductSearchView;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory search index over product name, brand and category.
+ * <p>
+ * Text is folded with {@link #fold(String)} (the normalisation behind product slugs), so matching is case- and
+ * diacritic-insensitive. Matching keeps the semantics of the old {@code LIKE '%term%'} queries: every
+ * non-empty term must be a substring of its field. Names are indexed by trigram, so a name term of three or
+ * more characters only looks at products sharing all of its trigrams; shorter terms scan the catalog in memory.
+ * Results are ordered by product id.
+ * <p>
+ * The index only holds ids and searchable text; rows are still read from MySQL. It is loaded when the
+ * application is ready, updated by {@link ProductService} on every write and reloaded periodically to pick up
+ * writes made by other instances. Only one load runs at a time; one that starts while another is running is
+ * skipped, since the running load already records the writes made meanwhile. Until the first load completes
+ * {@link #isReady()} is false and callers fall back to the database.
+ */
+@Component
+@Slf4j
+public class ProductSearchIndex {
+
+    private static final int GRAM = 3;
+
+    private final ProductRepository productRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock reloadLock = new ReentrantLock();
+
+    private NavigableMap<String, Doc> docs = new TreeMap<>();
+    private Map<String, Set<String>> postings = new HashMap<>();
+    private List<Runnable> pendingChanges;
+    private volatile boolean ready;
+
+    public ProductSearchIndex(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    public record SearchResult(List<String> ids, long total) {}
+
+    private record Doc(String id, String name, String brand, String category) {}
+
+    /**
+     * Lowercases and strips diacritics the same way as product slugs ({@code Đ/đ} become {@code d}); unlike
+     * slugs, whitespace is kept.
+     */
+    public static String fold(String input) {
+        if (input == null) {
+            return "";
+        }
+        String normalized = Normalizer.normalize(input.replace('Đ', 'D').replace('đ', 'd'), Normalizer.Form.NFD);
+        return normalized.replaceAll("[^\\w\\s-]", "").toLowerCase(Locale.ENGLISH);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            reload();
+        } catch (Exception e) {
+            log.warn("Could not build product search index, searching the database: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(
+            initialDelayString = "${product.search.refresh-interval:60000}",
+            fixedDelayString = "${product.search.refresh-interval:60000}")
+    public void reload() {
+        if (!reloadLock.tryLock()) {
+            log.debug("Product search index reload already running, skipping");
+            return;
+        }
+        try {
+            rebuild();
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    // Chỉ chạy khi giữ reloadLock: pendingChanges thuộc về đúng một lần rebuild
+    private void rebuild() {
+        lock.writeLock().lock();
+        try {
+            pendingChanges = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        NavigableMap<String, Doc> newDocs = new TreeMap<>();
+        Map<String, Set<String>> newPostings = new HashMap<>();
+        try {
+            for (ProductSearchView view : productRepository.findAllSearchFields()) {
+                Doc doc = toDoc(view.getId(), view.getName(), view.getBrand(), view.getCategory());
+                newDocs.put(doc.id(), doc);
+                addPostings(newPostings, doc);
+            }
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pendingChanges = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            docs = newDocs;
+            postings = newPostings;
+            // ghi nhận lại các thay đổi xảy ra trong lúc đọc dữ liệu
+            List<Runnable> changes = pendingChanges;
+            pendingChanges = null;
+            changes.forEach(Runnable::run);
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.debug("Product search index loaded with {} products", newDocs.size());
+    }
+
+    public void put(Product product) {
+        Doc doc = toDoc(product.getId(), product.getName(), product.getBrand(), product.getCategory());
+        lock.writeLock().lock();
+        try {
+            apply(() -> {
+                Doc previous = docs.put(doc.id(), doc);
+                if (previous != null) {
+                    removePostings(previous);
+                }
+                addPostings(postings, doc);
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String id) {
+        lock.writeLock().lock();
+        try {
+            apply(() -> {
+                Doc previous = docs.remove(id);
+                if (previous != null) {
+                    removePostings(previous);
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of the matching products in {@code [offset, offset + limit)} together with the number of
+     * matches. A negative {@code limit} returns every match.
+     */
+    public SearchResult search(String name, String brand, String category, int offset, int limit) {
+        String nameTerm = fold(name);
+        String brandTerm = fold(brand);
+        String categoryTerm = fold(category);
+
+        lock.readLock().lock();
+        try {
+            Collection<Doc> candidates = candidates(nameTerm);
+            List<String> page = new ArrayList<>();
+            long total = 0;
+            for (Doc doc : candidates) {
+                if (!doc.name().contains(nameTerm)
+                        || !doc.brand().contains(brandTerm)
+                        || !doc.category().contains(categoryTerm)) {
+                    continue;
+                }
+                if (total >= offset && (limit < 0 || page.size() < limit)) {
+                    page.add(doc.id());
+                }
+                total++;
+            }
+            return new SearchResult(page, total);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Ứng viên theo trigram của tên, giữ thứ tự theo id
+    private Collection<Doc> candidates(String nameTerm) {
+        if (nameTerm.length() < GRAM) {
+            return docs.values();
+        }
+        List<Set<String>> lists = new ArrayList<>();
+        for (String gram : grams(nameTerm)) {
+            Set<String> ids = postings.get(gram);
+            if (ids == null) {
+                return List.of();
+            }
+            lists.add(ids);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+        SortedSet<String> ids = new TreeSet<>(lists.get(0));
+        for (int i = 1; i < lists.size() && !ids.isEmpty(); i++) {
+            ids.retainAll(lists.get(i));
+        }
+        List<Doc> result = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            result.add(docs.get(id));
+        }
+        return result;
+    }
+
+    private void apply(Runnable change) {
+        change.run();
+        if (pendingChanges != null) {
+            pendingChanges.add(change);
+        }
+    }
+
+    private void addPostings(Map<String, Set<String>> target, Doc doc) {
+        for (String gram : grams(doc.name())) {
+            target.computeIfAbsent(gram, key -> new HashSet<>()).add(doc.id());
+        }
+    }
+
+    private void removePostings(Doc doc) {
+        for (String gram : grams(doc.name())) {
+            Set<String> ids = postings.get(gram);
+            if (ids != null) {
+                ids.remove(doc.id());
+                if (ids.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    private static Doc toDoc(String id, String name, String brand, String category) {
+        return new Doc(id, fold(name), fold(brand), fold(category));
+    }
+}
@@ -1,16 +1,26 @@
 package com.example.product_service.service;
 
-import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
+import com.example.product_service.dto.request.ProductBatchRequest;
 import com.example.product_service.dto.request.ProductCreationRequest;
 import com.example.product_service.dto.request.ProductUpdateRequest;
+import com.example.product_service.dto.response.ProductBatchResponse;
 import com.example.product_service.dto.response.ProductResponse;
+import com.example.product_service.dto.response.ProductSearchResponse;
 import com.example.product_service.entity.Product;
 import com.example.product_service.exception.AppException;
 import com.example.product_service.exception.ErrorCode;
@@ -20,6 +30,7 @@ import com.example.product_service.repository.ProductRepository;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
 import lombok.extern.slf4j.Slf4j;
 
 @Service
@@ -30,13 +41,17 @@ public class ProductService {
 
     ProductRepository productRepository;
     ProductMapper productMapper;
+    ProductSearchIndex productSearchIndex;
+    ProductCache productCache;
 
-    // Sinh slug
+    @NonFinal
+    @Value("${product.batch.max-size:500}")
+    int batchMaxSize;
+
+    // Sinh slug (cùng cách chuẩn hóa với chỉ mục tìm kiếm)
     private String generateSlug(String input) {
         String nowhitespace = input.trim().replaceAll("\\s+", "-");
-        String normalized = Normalizer.normalize(nowhitespace, Normalizer.Form.NFD);
-        String slug = normalized.replaceAll("[^\\w-]", "").toLowerCase(Locale.ENGLISH);
-        return slug;
+        return ProductSearchIndex.fold(nowhitespace);
     }
 
     // Tạo mới sản phẩm
@@ -47,6 +62,7 @@ public class ProductService {
         product.setSlug(generateSlug(request.getName()));
 
         product = productRepository.save(product);
+        productSearchIndex.put(product);
         return productMapper.toProductResponse(product);
     }
 
@@ -54,6 +70,14 @@ public class ProductService {
     public List<ProductResponse> searchProducts(
             String name, String brand, String category, Integer page, Integer size) {
         log.info("Getting products");
+        if (productSearchIndex.isReady()) {
+            int offset = page != null && size != null ? page * size : 0;
+            int limit = page != null && size != null ? size : -1;
+            return loadInOrder(productSearchIndex
+                    .search(name, brand, category, offset, limit)
+                    .ids());
+        }
+
         // Nếu có phân trang
         if (page != null && size != null) {
             Pageable pageable = PageRequest.of(page, size);
@@ -68,40 +92,166 @@ public class ProductService {
                 .toList();
     }
 
+    /**
+     * Returns one page of matches and, unless {@code withTotal} is false, the number of matches. With the search
+     * index both come from the same pass over the index; on the database fallback the total costs a COUNT
+     * query, which {@code withTotal=false} skips.
+     */
+    public ProductSearchResponse searchProductsWithTotal(
+            String name, String brand, String category, Integer page, Integer size, boolean withTotal) {
+        boolean paged = page != null && size != null;
+        if (productSearchIndex.isReady()) {
+            ProductSearchIndex.SearchResult result =
+                    productSearchIndex.search(name, brand, category, paged ? page * size : 0, paged ? size : -1);
+            return ProductSearchResponse.builder()
+                    .products(loadInOrder(result.ids()))
+                    .total(withTotal ? result.total() : null)
+                    .build();
+        }
+
+        if (!paged) {
+            List<ProductResponse> products = searchProducts(name, brand, category, null, null);
+            return ProductSearchResponse.builder()
+                    .products(products)
+                    .total(withTotal ? (long) products.size() : null)
+                    .build();
+        }
+
+        Pageable pageable = PageRequest.of(page, size);
+        if (withTotal) {
+            Page<Product> result = productRepository.searchProducts(name, brand, category, pageable);
+            return ProductSearchResponse.builder()
+                    .products(result.map(productMapper::toProductResponse).getContent())
+                    .total(result.getTotalElements())
+                    .build();
+        }
+        return ProductSearchResponse.builder()
+                .products(productRepository.searchProductsSlice(name, brand, category, pageable).stream()
+                        .map(productMapper::toProductResponse)
+                        .toList())
+                .build();
+    }
+
     public long countProducts(String name, String brand, String category) {
+        if (productSearchIndex.isReady()) {
+            return productSearchIndex.search(name, brand, category, 0, 0).total();
+        }
         return productRepository.countProducts(
                 name == null || name.isBlank() ? null : name,
                 brand == null || brand.isBlank() ? null : brand,
                 category == null || category.isBlank() ? null : category);
     }
 
-    // Lấy sản phẩm theo id
+    // Lấy sản phẩm theo id (qua cache)
     public ProductResponse getProduct(String id) {
-        Product product =
-                productRepository.findById(id).orElseThrow(() -> new AppException(ErrorCode.PRODUCT_NOT_FOUND));
-        return productMapper.toProductResponse(product);
+        return productCache.get(id, () -> {
+            Product product =
+                    productRepository.findById(id).orElseThrow(() -> new AppException(ErrorCode.PRODUCT_NOT_FOUND));
+            return productMapper.toProductResponse(product);
+        });
+    }
+
+    // Lấy sản phẩm theo slug (qua cache)
+    public ProductResponse getProductBySlug(String slug) {
+        String id = productCache.idForSlug(slug, () -> productRepository
+                .findBySlug(slug)
+                .map(Product::getId)
+                .orElseThrow(() -> new AppException(ErrorCode.PRODUCT_NOT_FOUND)));
+        return getProduct(id);
+    }
+
+    /**
+     * Looks up many products at once: one query for the ids and one for the slugs. Duplicates are returned once,
+     * in request order, and unknown ids/slugs are listed instead of failing the whole batch.
+     */
+    public ProductBatchResponse getProducts(ProductBatchRequest request) {
+        Set<String> ids = request.getIds() == null ? Set.of() : new LinkedHashSet<>(request.getIds());
+        Set<String> slugs = request.getSlugs() == null ? Set.of() : new LinkedHashSet<>(request.getSlugs());
+        if (ids.size() + slugs.size() > batchMaxSize) {
+            throw new AppException(ErrorCode.PRODUCT_BATCH_TOO_LARGE);
+        }
+
+        Map<String, Product> byId = new HashMap<>();
+        if (!ids.isEmpty()) {
+            productRepository.findAllById(ids).forEach(product -> byId.put(product.getId(), product));
+        }
+        Map<String, Product> bySlug = new HashMap<>();
+        if (!slugs.isEmpty()) {
+            productRepository.findBySlugIn(slugs).forEach(product -> bySlug.put(product.getSlug(), product));
+        }
+
+        Set<String> returned = new LinkedHashSet<>();
+        List<ProductResponse> products = new ArrayList<>();
+        List<String> missingIds = new ArrayList<>();
+        List<String> missingSlugs = new ArrayList<>();
+        for (String id : ids) {
+            Product product = byId.get(id);
+            if (product == null) {
+                missingIds.add(id);
+            } else if (returned.add(product.getId())) {
+                products.add(productMapper.toProductResponse(product));
+            }
+        }
+        for (String slug : slugs) {
+            Product product = bySlug.get(slug);
+            if (product == null) {
+                missingSlugs.add(slug);
+            } else if (returned.add(product.getId())) {
+                products.add(productMapper.toProductResponse(product));
+            }
+        }
+
+        return ProductBatchResponse.builder()
+                .products(products)
+                .missingIds(missingIds)
+                .missingSlugs(missingSlugs)
+                .build();
     }
 
     // Cập nhật sản phẩm
     public ProductResponse updateProduct(String id, ProductUpdateRequest request) {
         Product product =
                 productRepository.findById(id).orElseThrow(() -> new AppException(ErrorCode.PRODUCT_NOT_FOUND));
+        String oldSlug = product.getSlug();
         productMapper.updateProduct(product, request);
-        return productMapper.toProductResponse(productRepository.save(product));
+        product = productRepository.save(product);
+        productSearchIndex.put(product);
+        productCache.evict(List.of(id));
+        // slug có thể đã đổi: bỏ cả ánh xạ slug cũ lẫn slug mới
+        productCache.evictSlugs(slugsOf(oldSlug, product.getSlug()));
+        return productMapper.toProductResponse(product);
     }
 
     // Xóa sản phẩm
     public void deleteProduct(String id) {
-        if (!productRepository.existsById(id)) {
-            throw new AppException(ErrorCode.PRODUCT_NOT_FOUND);
-        }
+        Product product =
+                productRepository.findById(id).orElseThrow(() -> new AppException(ErrorCode.PRODUCT_NOT_FOUND));
         productRepository.deleteById(id);
+        productSearchIndex.remove(id);
+        productCache.evict(List.of(id));
+        productCache.evictSlugs(slugsOf(product.getSlug()));
+    }
+
+    private static List<String> slugsOf(String... slugs) {
+        return Arrays.stream(slugs).filter(Objects::nonNull).distinct().toList();
     }
 
     // Đếm sản phẩm
     public long countTotalProducts() {
         return productRepository.count();
     }
-}
-
 
+    // Đọc sản phẩm theo danh sách id, giữ nguyên thứ tự (bỏ qua id vừa bị xóa)
+    private List<ProductResponse> loadInOrder(List<String> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<String, Product> products = new HashMap<>();
+        productRepository.findAllById(ids).forEach(product -> products.put(product.getId(), product));
+        return ids.stream()
+                .map(products::get)
+                .filter(product -> product != null)
+                .map(productMapper::toProductResponse)
+                .toList();
+    }
+}
@@ -0,0 +1,9 @@
+-- Write a loaded product to the cache, unless it was evicted while it was being loaded.
+-- KEYS[1] = cache entry, KEYS[2] = version of the product, bumped by every eviction
+-- ARGV[1] = version read before loading ('0' when there was none), ARGV[2] = JSON, ARGV[3] = TTL (ms)
+-- Returns 1 when written, 0 when the version changed and the loaded value may be stale.
+if (redis.call('GET', KEYS[2]) or '0') ~= ARGV[1] then
+    return 0
+end
+redis.call('SET', KEYS[1], ARGV[2], 'PX', ARGV[3])
+return 1
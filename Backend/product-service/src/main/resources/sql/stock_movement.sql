@@ -0,0 +1,6 @@
+USE product_db;
+-- Refs of the inventory updates applied through POST /inventory/bulk, so a retried update is not applied twice.
+CREATE TABLE stock_movement (
+                                ref VARCHAR(100) NOT NULL PRIMARY KEY,
+                                applied_at TIMESTAMP(6) NOT NULL
+);
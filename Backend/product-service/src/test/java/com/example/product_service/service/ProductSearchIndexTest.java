@@ -0,0 +1,182 @@
+package com.example.product_service.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.product_service.entity.Product;
+import com.example.product_service.repository.ProductRepository;
+import com.example.product_service.repository.projection.ProductSearchView;
+
+class ProductSearchIndexTest {
+
+    private ProductRepository productRepository;
+    private ProductSearchIndex index;
+
+    private record View(String id, String name, String brand, String category) implements ProductSearchView {
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getBrand() {
+            return brand;
+        }
+
+        @Override
+        public String getCategory() {
+            return category;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        index = new ProductSearchIndex(productRepository);
+    }
+
+    private void load(ProductSearchView... views) {
+        doReturn(List.of(views)).when(productRepository).findAllSearchFields();
+        index.load();
+    }
+
+    private static Product product(String id, String name, String brand, String category) {
+        return Product.builder()
+                .id(id)
+                .name(name)
+                .brand(brand)
+                .category(category)
+                .build();
+    }
+
+    @Test
+    void foldLowercasesAndStripsDiacriticsLikeSlugs() {
+        assertThat(ProductSearchIndex.fold("Sữa Rửa Mặt")).isEqualTo("sua rua mat");
+        assertThat(ProductSearchIndex.fold("ĐẸP da")).isEqualTo("dep da");
+        assertThat(ProductSearchIndex.fold("Kem-chống nắng!")).isEqualTo("kem-chong nang");
+        assertThat(ProductSearchIndex.fold(null)).isEmpty();
+    }
+
+    @Test
+    void isNotReadyUntilTheFirstLoadSucceeds() {
+        when(productRepository.findAllSearchFields()).thenThrow(new IllegalStateException("db down"));
+        index.load();
+        assertThat(index.isReady()).isFalse();
+
+        load(new View("1", "Son môi", "A", "Trang điểm"));
+        assertThat(index.isReady()).isTrue();
+    }
+
+    @Test
+    void matchesNameTermsIgnoringCaseAndDiacriticsInIdOrder() {
+        load(
+                new View("3", "Sữa rửa mặt dịu nhẹ", "Cetaphil", "Làm sạch"),
+                new View("1", "Sua rua mat than hoat tinh", "Senka", "Lam sach"),
+                new View("2", "Kem dưỡng ẩm", "Cetaphil", "Dưỡng da"));
+
+        ProductSearchIndex.SearchResult result = index.search("RỬA MẶT", null, null, 0, -1);
+
+        assertThat(result.ids()).containsExactly("1", "3");
+        assertThat(result.total()).isEqualTo(2);
+    }
+
+    @Test
+    void candidatesNeedEveryTrigramOfTheNameTerm() {
+        load(new View("1", "abcdef", "", ""), new View("2", "abcxyz", "", ""), new View("3", "abc bcd", "", ""));
+
+        assertThat(index.search("abc", null, null, 0, -1).ids()).containsExactly("1", "2", "3");
+        // trigram "cdx" không có trong tên nào
+        assertThat(index.search("cdx", null, null, 0, -1).total()).isZero();
+        // "abc" và "bcd" đều có trong tên 3 nhưng "abcd" không phải chuỗi con của nó
+        assertThat(index.search("abcd", null, null, 0, -1).ids()).containsExactly("1");
+    }
+
+    @Test
+    void shortNameTermsScanTheWholeCatalog() {
+        load(new View("1", "Son lì", "", ""), new View("2", "Phấn phủ", "", ""), new View("3", "Son bóng", "", ""));
+
+        assertThat(index.search("so", null, null, 0, -1).ids()).containsExactly("1", "3");
+        assertThat(index.search("", null, null, 0, -1).ids()).containsExactly("1", "2", "3");
+    }
+
+    @Test
+    void brandAndCategoryAreSubstringFilters() {
+        load(
+                new View("1", "Son lì", "Maybelline", "Trang điểm"),
+                new View("2", "Son dưỡng", "Vaseline", "Dưỡng môi"),
+                new View("3", "Son bóng", "Maybelline", "Dưỡng môi"));
+
+        assertThat(index.search("son", "maybel", null, 0, -1).ids()).containsExactly("1", "3");
+        assertThat(index.search("son", "maybel", "duong", 0, -1).ids()).containsExactly("3");
+    }
+
+    @Test
+    void pagesWithOffsetAndLimitAndCountsEveryMatch() {
+        load(
+                new View("1", "Son 1", "", ""),
+                new View("2", "Son 2", "", ""),
+                new View("3", "Son 3", "", ""),
+                new View("4", "Son 4", "", ""),
+                new View("5", "Kem", "", ""));
+
+        ProductSearchIndex.SearchResult page = index.search("son", null, null, 1, 2);
+
+        assertThat(page.ids()).containsExactly("2", "3");
+        assertThat(page.total()).isEqualTo(4);
+    }
+
+    @Test
+    void putReindexesARenamedProductAndRemoveDropsIt() {
+        load(new View("1", "Son lì", "", ""), new View("2", "Kem nền", "", ""));
+
+        index.put(product("1", "Phấn nước", "", ""));
+        assertThat(index.search("son", null, null, 0, -1).total()).isZero();
+        assertThat(index.search("phan", null, null, 0, -1).ids()).containsExactly("1");
+
+        index.remove("2");
+        assertThat(index.search("kem", null, null, 0, -1).total()).isZero();
+    }
+
+    @Test
+    void writesMadeWhileTheCatalogIsReadSurviveTheReload() {
+        when(productRepository.findAllSearchFields()).thenAnswer(invocation -> {
+            index.put(product("9", "Mặt nạ ngủ", "", ""));
+            return List.of(new View("1", "Son lì", "", ""));
+        });
+
+        index.reload();
+
+        assertThat(index.search("mat na", null, null, 0, -1).ids()).containsExactly("9");
+        assertThat(index.search("son", null, null, 0, -1).ids()).containsExactly("1");
+    }
+
+    @Test
+    void aReloadStartedWhileAnotherRunsIsSkipped() {
+        when(productRepository.findAllSearchFields()).thenAnswer(invocation -> {
+            Thread other = new Thread(index::reload);
+            other.start();
+            other.join();
+            return List.of(new View("1", "Son lì", "", ""));
+        });
+
+        index.reload();
+
+        verify(productRepository, times(1)).findAllSearchFields();
+        assertThat(index.isReady()).isTrue();
+        assertThat(index.search("son", null, null, 0, -1).ids()).containsExactly("1");
+    }
+}
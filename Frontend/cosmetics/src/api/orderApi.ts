@@ -1,29 +1,35 @@
-import axios from "axios";
-import type { Order, OrderSubmitData } from "../types/order";
+import axiosClient from "./axiosClient";
+import type { Order, OrderPageQuery, OrderSubmitData } from "../types/order";
 import type { Result } from "../types/result.ts";
 import { API_URL, API_ORDER } from "../constants/apiConstants.ts";
 
+// Số đơn mỗi lần tải
+const ORDER_PAGE_SIZE = 50;
+
 export const orderApi = {
 
   submitOrder: async (orderData: OrderSubmitData): Promise<Result<Order>> => {
-    const response = await axios.post<Result<Order>>(API_URL + API_ORDER, orderData, {
+    const response = await axiosClient.post<Result<Order>>(API_URL + API_ORDER, orderData, {
       headers: { "Content-Type": "application/json" },
     });
     return response.data;
   },
 
-  getAllOrders: async (): Promise<Result<Order[]>> => {
-    const response = await axios.get<Result<Order[]>>(API_URL + API_ORDER);
+  // Một trang đơn hàng, mới nhất trước, đã lọc ở server; nextCursor có giá trị khi còn trang sau
+  getOrdersPage: async (query: OrderPageQuery = {}): Promise<Result<Order[]>> => {
+    const response = await axiosClient.get<Result<Order[]>>(API_URL + API_ORDER, {
+      params: { include: "items", limit: ORDER_PAGE_SIZE, ...query },
+    });
     return response.data;
   },
 
   getById: async (id: string): Promise<Result<Order>> => {
-    const response = await axios.get<Result<Order>>(`${API_URL}${API_ORDER}/${id}`);
+    const response = await axiosClient.get<Result<Order>>(`${API_URL}${API_ORDER}/${id}`);
     return response.data;
   },
 
   updateOrderStatus: async (orderId: string | number, status: string): Promise<Result<Order>> => {
-    const response = await axios.put<Result<Order>>(
+    const response = await axiosClient.put<Result<Order>>(
         `${API_URL}${API_ORDER}/${orderId}`,
         { id: Number(orderId), status },
         { headers: { "Content-Type": "application/json" } }
@@ -32,7 +38,7 @@ export const orderApi = {
   },
 
   updateOrder: async (orderId: string | number, orderData: OrderSubmitData): Promise<Result<Order>> => {
-    const response = await axios.put<Result<Order>>(
+    const response = await axiosClient.put<Result<Order>>(
         `${API_URL}${API_ORDER}/${orderId}`,
         orderData,
         { headers: { "Content-Type": "application/json" } }
@@ -42,7 +48,7 @@ export const orderApi = {
 
   deleteOrder: async (orderId: string): Promise<Result<null>> => {
     try {
-      await axios.delete(`${API_URL}${API_ORDER}/${orderId}`);
+      await axiosClient.delete(`${API_URL}${API_ORDER}/${orderId}`);
       // Backend trả về 204 No Content, không có body
       return {
         status: true,
@@ -58,7 +64,7 @@ export const orderApi = {
   },
 
   cancelOrder: async (orderId: string | number): Promise<Result<Order>> => {
-    const response = await axios.put<Result<Order>>(
+    const response = await axiosClient.put<Result<Order>>(
         `${API_URL}${API_ORDER}/${orderId}/cancel`,
         {},
         { headers: { "Content-Type": "application/json" } }
@@ -1,4 +1,4 @@
-import axios from "axios";
+import axiosClient from "./axiosClient";
 import type { Result } from "../types/result.ts";
 import type {reportSumary} from "../types/report.ts";
 import { API_URL, API_REPORT } from "../constants/apiConstants.ts";
@@ -13,6 +13,11 @@ export interface RevenueData {
   revenue: number;
 }
 
+export interface ChartItem {
+  label: string;
+  value: number;
+}
+
 export interface RevenueResponse {
   data: RevenueData[];
   totalRevenue: number;
@@ -24,7 +29,7 @@ export const saleReportApi = {
     /** Lấy báo cáo tổng với optional date range */
     getReportSummary: async (params?: RevenueRequest): Promise<Result<reportSumary>> => {
         // Sửa: API này giờ trỏ đến invoice-service (đã được gateway config)
-        const response = await axios.get<Result<reportSumary>>(API_URL + API_REPORT, {
+        const response = await axiosClient.get<Result<reportSumary>>(API_URL + API_REPORT, {
           params: params ? {
             fromDate: params.fromDate,
             toDate: params.toDate
@@ -33,23 +38,28 @@ export const saleReportApi = {
         return response.data;
     },
 
-    // ✅ Lấy doanh thu theo ngày (daily)
+    // ✅ Lấy doanh thu theo ngày (daily) - từng giờ trong ngày từ /reports/series
     getDailyRevenue: async (params: RevenueRequest): Promise<RevenueResponse> => {
       try {
-        const response = await axios.get(API_URL + API_REPORT + '/daily', {
+        const response = await axiosClient.get<Result<ChartItem[]>>(API_URL + API_REPORT + '/series', {
           params: {
+            granularity: 'hour',
             fromDate: params.fromDate,
             toDate: params.toDate
           }
         });
 
-        // Backend trả BigDecimal → dùng trực tiếp
-        const backendData = response.data.data;
-        const transformedData = transformDailyDataToHourly(backendData);
+        const series = response.data.data || [];
+        const singleDay = !params.fromDate || params.fromDate === params.toDate;
+        const transformedData = series.map((item) => ({
+          // label dạng "yyyy-MM-dd HH:00"
+          hour: singleDay ? `${parseInt(item.label.substring(11, 13), 10)}h` : item.label.substring(5),
+          revenue: Number(item.value) || 0
+        }));
 
         return {
           data: transformedData,
-          totalRevenue: backendData || 0,
+          totalRevenue: transformedData.reduce((sum, item) => sum + item.revenue, 0),
           fromDate: params.fromDate,
           toDate: params.toDate
         };
@@ -61,7 +71,7 @@ export const saleReportApi = {
     // ✅ Lấy doanh thu theo tháng (monthly)
     getMonthlyRevenue: async (params: RevenueRequest): Promise<RevenueResponse> => {
       try {
-        const response = await axios.get(API_URL + API_REPORT + '/monthly', {
+        const response = await axiosClient.get(API_URL + API_REPORT + '/monthly', {
           params: {
             fromDate: params.fromDate,
             toDate: params.toDate
@@ -84,22 +94,6 @@ export const saleReportApi = {
     }
 }
 
-// ✅ Helper cho daily (vẽ 24 giờ)
-const transformDailyDataToHourly = (backendData: any): RevenueData[] => {
-  const hourlyData: RevenueData[] = Array.from({ length: 24 }, (_, i) => ({
-    hour: `${i}h`,
-    revenue: 0
-  }));
-
-  // Nếu backend chỉ trả số → phân bố ngẫu nhiên 1h nào đó để nhìn thấy cột
-  if (typeof backendData === 'number') {
-    const randomHour = Math.floor(Math.random() * 24);
-    hourlyData[randomHour].revenue = backendData;
-  }
-
-  return hourlyData;
-};
-
 // ✅ Helper cho monthly (hiển thị 1 cột tổng tháng)
 const transformMonthlyDataToSingleBar = (backendData: any): RevenueData[] => {
   if (typeof backendData === 'number') {
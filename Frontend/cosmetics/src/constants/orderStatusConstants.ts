@@ -31,12 +31,16 @@ export const getStatusColor = (status: string): string => {
 
 export const statusTabs = [
   { key: "all", label: "Tất cả" },
-  { key: "incomplete", label: "Chưa hoàn thành" },
-  { key: "completed", label: "Đã hoàn thành" },
-  { key: "cancelled", label: "Đã hủy" },
-  { key: "return", label: "Trả hàng" },
+  { key: "incomplete", label: "Chưa hoàn thành", status: ORDER_STATUS.DRAFT },
+  { key: "completed", label: "Đã hoàn thành", status: ORDER_STATUS.COMPLETED },
+  { key: "cancelled", label: "Đã hủy", status: ORDER_STATUS.CANCELLED },
+  { key: "return", label: "Trả hàng", status: ORDER_STATUS.RETURNED },
 ];
 
+// Trạng thái gửi lên server cho một tab; undefined với tab "Tất cả"
+export const statusOfTab = (key: string): string | undefined =>
+  statusTabs.find((tab) => tab.key === key)?.status;
+
 export const formatPrice = (price: number) => {
   return new Intl.NumberFormat('vi-VN', {
     style: 'currency',
@@ -7,7 +7,8 @@ export const OrderFilters: React.FC<OrderFiltersProps> = ({
     onSearchChange,
     selectedStatus,
     onStatusChange,
-    totalOrders = 0
+    totalOrders = 0,
+    hasMore = false
 }) => {
     return (
         <>
@@ -40,7 +41,7 @@ export const OrderFilters: React.FC<OrderFiltersProps> = ({
                         />
                     </div>
                     <div className="orders-management-total-orders">
-                        Tổng: <span className="orders-management-total-count">{totalOrders}</span> đơn hàng
+                        Tổng: <span className="orders-management-total-count">{totalOrders}{hasMore ? "+" : ""}</span> đơn hàng
                     </div>
                 </div>
             </div>
@@ -5,14 +5,36 @@ import { OrderDetailModal } from "./OrderDetailModal.tsx";
 import { OrderFilters } from "./OrderFilters.tsx";
 import { OrderTable } from "../../../components/orders/OrderTable.tsx";
 import { formatPrice, getStatusText, getStatusColor, getPaymentMethodText } from "../../../utils/orderUtils.ts";
+import { statusOfTab } from "../../../constants/orderStatusConstants.ts";
 import "./OrderManagement.css";
 import './../userManagement.css';
 import { useNavigate } from "react-router-dom";
 
+const toOrder = (order: any): Order => ({
+    ...order,
+    orderId: order.id || order.orderId,
+    total: order.total !== undefined ? order.total : (order.finalPrice || 0),
+    createdDate: order.createdDate || order.createdAt || order.created_date,
+    items: (order.items || order.orderDetails || []).map((item: any) => ({
+        ...item,
+        product: item.product || {
+            id: item.productId,
+            name: item.productName,
+            price: item.unitPrice || item.price
+        },
+        quantity: item.quantity || item.quantityProduct,
+        unitPrice: item.unitPrice || item.price,
+        totalPrice: item.totalPrice || item.total,
+        subtotal: item.subtotal || item.total
+    }))
+});
+
 export const OrderManagement = () => {
     const [orders, setOrders] = useState<Order[]>([]);
     const navigate = useNavigate();
     const [loading, setLoading] = useState(true);
+    const [loadingMore, setLoadingMore] = useState(false);
+    const [nextCursor, setNextCursor] = useState<number | undefined>(undefined);
     const [error, setError] = useState<string | null>(null);
     const [searchTerm, setSearchTerm] = useState("");
     const [selectedStatus, setSelectedStatus] = useState("all");
@@ -22,33 +44,14 @@ export const OrderManagement = () => {
     const [itemsPerPage] = useState(10);
 
 
+    // Trang đầu theo tab trạng thái đang chọn; lọc trạng thái ở server
     const fetchOrders = async () => {
         try {
             setLoading(true);
             setError(null);
-            const result = await orderApi.getAllOrders();
-            const { data = [] } = result || {};
-
-            const transformedOrders = (data || []).map((order: any) => ({
-                ...order,
-                orderId: order.id || order.orderId,
-                total: order.total !== undefined ? order.total : (order.finalPrice || 0),
-                createdDate: order.createdDate || order.createdAt || order.created_date,
-                items: (order.items || order.orderDetails || []).map((item: any) => ({
-                    ...item,
-                    product: item.product || {
-                        id: item.productId,
-                        name: item.productName,
-                        price: item.unitPrice || item.price
-                    },
-                    quantity: item.quantity || item.quantityProduct,
-                    unitPrice: item.unitPrice || item.price,
-                    totalPrice: item.totalPrice || item.total,
-                    subtotal: item.subtotal || item.total
-                }))
-            }));
-
-            setOrders(transformedOrders);
+            const result = await orderApi.getOrdersPage({ status: statusOfTab(selectedStatus) });
+            setOrders((result?.data || []).map(toOrder));
+            setNextCursor(result?.nextCursor ?? undefined);
         } catch (err: any) {
             const errorMessage =
                 err.response?.data?.message ||
@@ -56,14 +59,30 @@ export const OrderManagement = () => {
                 "Lỗi khi tải đơn hàng";
             setError(errorMessage);
             setOrders([]);
+            setNextCursor(undefined);
         } finally {
             setLoading(false);
         }
     };
 
+    // Nối trang kế tiếp vào danh sách đã tải
+    const loadMoreOrders = async () => {
+        if (nextCursor === undefined) return;
+        try {
+            setLoadingMore(true);
+            const result = await orderApi.getOrdersPage({ cursor: nextCursor, status: statusOfTab(selectedStatus) });
+            setOrders(prev => [...prev, ...(result?.data || []).map(toOrder)]);
+            setNextCursor(result?.nextCursor ?? undefined);
+        } catch (err: any) {
+            alert(err.response?.data?.message || err.message || "Lỗi khi tải thêm đơn hàng");
+        } finally {
+            setLoadingMore(false);
+        }
+    };
+
     useEffect(() => {
         fetchOrders();
-    }, []);
+    }, [selectedStatus]);
 
 
     const handleViewOrder = (order: Order) => {
@@ -104,18 +123,6 @@ export const OrderManagement = () => {
             await orderApi.deleteOrder(String(orderId));
             setOrders(prev => prev.filter(order => order.orderId !== Number(orderId)));
             alert('Đơn hàng đã được xoá thành công!');
-
-            // Fallback: Refresh orders list after a short delay
-            setTimeout(async () => {
-                try {
-                    const response = await orderApi.getAllOrders();
-                    if (response.data) {
-                        setOrders(response.data);
-                    }
-                } catch (error) {
-                    // Silent error handling
-                }
-            }, 1000);
         } catch (error: any) {
             const errorMessage = error.response?.data?.message || error.message || 'Có lỗi xảy ra khi xoá đơn hàng. Vui lòng thử lại.';
             alert(errorMessage);
@@ -140,26 +147,15 @@ export const OrderManagement = () => {
         }
     };
 
+    // Tìm kiếm trong các đơn đã tải; đơn đổi trạng thái tại chỗ rời khỏi tab hiện tại
+    const tabStatus = statusOfTab(selectedStatus);
     const filteredOrders = orders.filter((order) => {
         const matchesSearch =
             order.customerName.toLowerCase().includes(searchTerm.toLowerCase()) ||
             order.code.toLowerCase().includes(searchTerm.toLowerCase()) ||
             order.orderId.toString().includes(searchTerm);
 
-        let matchesStatus = false;
-        if (selectedStatus === "all") {
-            matchesStatus = true;
-        } else if (selectedStatus === "incomplete") {
-            matchesStatus = order.status === "DRAFT";
-        } else if (selectedStatus === "completed") {
-            matchesStatus = order.status === "COMPLETED";
-        } else if (selectedStatus === "cancelled") {
-            matchesStatus = order.status === "CANCELLED";
-        } else if (selectedStatus === "return") {
-            matchesStatus = order.status === "RETURNED";
-        }
-
-        return matchesSearch && matchesStatus;
+        return matchesSearch && (!tabStatus || order.status === tabStatus);
     });
 
     // Pagination logic
@@ -196,7 +192,7 @@ export const OrderManagement = () => {
                 <div className="error-content">
                     <h3>Lỗi tải dữ liệu</h3>
                     <p style={{ color: "#dc2626", marginBottom: "16px" }}>{error}</p>
-                    <button className="btn btn-primary" onClick={fetchOrders}>
+                    <button className="btn btn-primary" onClick={() => fetchOrders()}>
                         <span className="icon">🔄</span>
                         Thử lại
                     </button>
@@ -228,6 +224,7 @@ export const OrderManagement = () => {
                 selectedStatus={selectedStatus}
                 onStatusChange={handleStatusChange}
                 totalOrders={filteredOrders.length}
+                hasMore={nextCursor !== undefined}
             />
 
             {/* Orders Table */}
@@ -278,6 +275,18 @@ export const OrderManagement = () => {
                 </div>
             )}
 
+            {nextCursor !== undefined && (
+                <div className="pagination-container">
+                    <button
+                        className="btn btn-secondary"
+                        onClick={loadMoreOrders}
+                        disabled={loadingMore}
+                    >
+                        {loadingMore ? "Đang tải..." : "Tải thêm đơn hàng"}
+                    </button>
+                </div>
+            )}
+
             {/* Order Detail Modal */}
             <OrderDetailModal
                 order={selectedOrder}
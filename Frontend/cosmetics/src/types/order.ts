@@ -103,4 +103,14 @@ export interface OrderFiltersProps {
     selectedStatus: string;
     onStatusChange: (status: string) => void;
     totalOrders: number;
+    hasMore?: boolean;
+}
+
+// Tham số lọc của GET /orders; from/to là ISO date-time
+export interface OrderPageQuery {
+    cursor?: number;
+    status?: string;
+    customer?: string;
+    from?: string;
+    to?: string;
 }
\ No newline at end of file
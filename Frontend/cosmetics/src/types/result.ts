@@ -10,4 +10,5 @@ export interface Result<T> {
     message?: ResultMessage[];
     data: T;
     count?: number;
+    nextCursor?: number; // id đơn cuối của trang, gửi lại làm cursor để lấy trang sau
 }